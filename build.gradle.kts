@@ -14,6 +14,30 @@ configure<JavaPluginExtension> {
   targetCompatibility = JavaVersion.VERSION_1_8
 }
 
+tasks.named<JavaCompile>("compileJava") {
+  options.release.set(8)
+}
+
+val java9: SourceSet by sourceSets.creating {
+  java.setSrcDirs(listOf("src/main/java9"))
+  compileClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>(java9.compileJavaTaskName) {
+  options.release.set(9)
+}
+
+tasks.named<Jar>("jar") {
+  into("META-INF/versions/9") { from(java9.output) }
+  manifest { attributes("Multi-Release" to "true") }
+}
+
+tasks.named<Test>("test") {
+  if (JavaVersion.current().isJava9Compatible) {
+    classpath = java9.output + classpath
+  }
+}
+
 dependencies {
   testImplementation("com.esotericsoftware.yamlbeans:yamlbeans:1.15")
 }
@@ -1,39 +1,268 @@
 package io.vacco.oruzka.core;
 
+import java.nio.charset.*;
 import java.util.*;
-import java.util.function.Function;
-
-import static java.util.Arrays.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 
 public class OzArrays {
 
-  private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
-
+  /** @return upper case hex digits. See {@link OzCodec} for other targets. */
   public static String bytesToHex(byte[] bytes) {
-    char[] hexChars = new char[bytes.length * 2];
-    for (int j = 0; j < bytes.length; j++) {
-      int v = bytes[j] & 0xFF;
-      hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-      hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-    }
-    return new String(hexChars);
+    return OzCodec.hex(bytes, true);
   }
 
   public static byte[] concat(byte[] first, byte[] second) {
-    byte[] result = copyOf(first, first.length + second.length);
-    System.arraycopy(second, 0, result, first.length, second.length);
-    return result;
+    return OzBytes.concatAll(first, second);
+  }
+
+  /**
+   * Concatenates the encoded ids of the non-null values, in a single pass over a pooled buffer.
+   *
+   * @param cs the ids' charset.
+   * @param idFn the id function.
+   * @param values the values.
+   * @return the concatenated ids, or empty if every value is null.
+   */
+  public static Optional<byte[]> fnConcat(Charset cs, Function<Object, String> idFn, Object ... values) {
+    try (OzBytes b = OzBytes.borrow()) {
+      boolean any = false;
+      for (Object v : values) {
+        if (v != null) {
+          b.append(idFn.apply(v), cs);
+          any = true;
+        }
+      }
+      return any ? Optional.of(b.toByteArray()) : Optional.empty();
+    }
   }
 
+  /** Same as {@link #fnConcat(Charset, Function, Object...)}, with UTF-8 ids. */
   public static Optional<byte[]> fnConcat(Function<Object, String> idFn, Object ... values) {
-    return stream(values)
-        .filter(Objects::nonNull)
-        .map(idFn)
-        .map(String::getBytes)
-        .reduce(OzArrays::concat);
+    return fnConcat(StandardCharsets.UTF_8, idFn, values);
   }
 
   public static Optional<byte[]> toStringConcat(Object ... values) {
     return fnConcat(Object::toString, values);
   }
+
+  /* ================================= radix sort ================================= */
+
+  private static final int RADIX_BITS = 8, RADIX = 1 << RADIX_BITS, RADIX_MASK = RADIX - 1;
+  private static final int RADIX_MIN = 64, RADIX_CHUNK_MIN = 1 << 15;
+
+  private static int digit(long key, int d) {
+    return (int) ((key ^ Long.MIN_VALUE) >>> (d * RADIX_BITS)) & RADIX_MASK; // signed order
+  }
+
+  private static class ForEachTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int from, to;
+    private final IntConsumer task;
+    ForEachTask(int from, int to, IntConsumer task) {
+      this.from = from;
+      this.to = to;
+      this.task = task;
+    }
+    @Override protected void compute() {
+      if (to - from == 1) {
+        task.accept(from);
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ForEachTask(from, mid, task), new ForEachTask(mid, to, task));
+      }
+    }
+  }
+
+  private static void forEach(ForkJoinPool pool, int tasks, IntConsumer task) {
+    if (tasks == 1 || pool.getParallelism() == 1) {
+      for (int i = 0; i < tasks; i++) {
+        task.accept(i);
+      }
+    } else {
+      pool.invoke(new ForEachTask(0, tasks, task));
+    }
+  }
+
+  private static boolean trivial(int[] counts, int d, int n) {
+    for (int b = d * RADIX, end = b + RADIX; b < end; b++) {
+      if (counts[b] != 0) {
+        return counts[b] == n;
+      }
+    }
+    return true;
+  }
+
+  private static void insertionSort(long[] keys, int[] payloads, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      long k = keys[i];
+      int p = payloads != null ? payloads[i] : 0, j = i - 1;
+      for (; j >= from && keys[j] > k; j--) {
+        keys[j + 1] = keys[j];
+        if (payloads != null) { payloads[j + 1] = payloads[j]; }
+      }
+      keys[j + 1] = k;
+      if (payloads != null) { payloads[j + 1] = p; }
+    }
+  }
+
+  /** Sorts <code>src[from, to)</code> by its low <code>digits</code> bytes, leaving the result in <code>dst</code>. */
+  private static void lsdSort(long[] src, long[] dst, int[] psrc, int[] pdst, int from, int to, int digits) {
+    int n = to - from;
+    if (n < RADIX_MIN) {
+      System.arraycopy(src, from, dst, from, n);
+      if (psrc != null) { System.arraycopy(psrc, from, pdst, from, n); }
+      insertionSort(dst, pdst, from, to);
+      return;
+    }
+    int[] counts = new int[digits * RADIX];
+    for (int i = from; i < to; i++) {
+      long k = src[i];
+      for (int d = 0; d < digits; d++) {
+        counts[d * RADIX + digit(k, d)]++;
+      }
+    }
+    long[] s0 = src, d0 = dst;
+    int[] ps0 = psrc, pd0 = pdst;
+    for (int d = 0; d < digits; d++) {
+      if (trivial(counts, d, n)) {
+        continue;
+      }
+      int base = d * RADIX, pos = from;
+      for (int b = base; b < base + RADIX; b++) {
+        int c = counts[b];
+        counts[b] = pos;
+        pos += c;
+      }
+      for (int i = from; i < to; i++) {
+        long k = s0[i];
+        int at = counts[base + digit(k, d)]++;
+        d0[at] = k;
+        if (ps0 != null) { pd0[at] = ps0[i]; }
+      }
+      long[] t = s0; s0 = d0; d0 = t;
+      int[] pt = ps0; ps0 = pd0; pd0 = pt;
+    }
+    if (s0 != dst) {
+      System.arraycopy(s0, from, dst, from, n);
+      if (psrc != null) { System.arraycopy(ps0, from, pdst, from, n); }
+    }
+  }
+
+  /**
+   * Stable radix sort of <code>keys</code> in ascending (signed) order, moving
+   * <code>payloads</code> along with their keys.
+   *
+   * A first pass finds the highest byte which differs between keys. Keys are scattered into
+   * buckets by that byte (MSD), and then each bucket is sorted on its own by the lower bytes
+   * (LSD), skipping bytes which are equal for every key in the bucket. On uniformly
+   * distributed keys, buckets are small enough for their LSD passes to stay in cache. Large
+   * arrays build histograms and scatter keys in parallel chunks, and buckets are sorted in
+   * parallel.
+   *
+   * @param keys the keys to sort.
+   * @param payloads the keys' payloads, or <code>null</code>.
+   * @param pool the pool to sort on.
+   */
+  public static void radixSort(long[] keys, int[] payloads, ForkJoinPool pool) {
+    OzCheck.isTrue(payloads == null || payloads.length == keys.length, "arrays.payload.length.mismatch");
+    int n = keys.length;
+    if (n < RADIX_MIN) {
+      insertionSort(keys, payloads, 0, n);
+      return;
+    }
+    int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, n / RADIX_CHUNK_MIN));
+    int chunkSize = (n + chunks - 1) / chunks;
+    long[] diffs = new long[chunks];
+    forEach(pool, chunks, c -> {
+      long first = keys[0], diff = 0;
+      for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+        diff |= keys[i] ^ first;
+      }
+      diffs[c] = diff;
+    });
+    long diff = 0;
+    for (long d : diffs) { diff |= d; }
+    if (diff == 0) {
+      return;
+    }
+    int msd = (63 - Long.numberOfLeadingZeros(diff)) / RADIX_BITS;
+    int[][] counts = new int[chunks][RADIX];
+    forEach(pool, chunks, c -> {
+      int[] h = counts[c];
+      for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+        h[digit(keys[i], msd)]++;
+      }
+    });
+    int[] starts = new int[RADIX + 1];
+    for (int b = 0, pos = 0; b < RADIX; b++) { // chunk offsets within each bucket keep the sort stable
+      starts[b] = pos;
+      for (int[] h : counts) {
+        int c = h[b];
+        h[b] = pos;
+        pos += c;
+      }
+    }
+    starts[RADIX] = n;
+    long[] tmp = new long[n];
+    int[] ptmp = payloads != null ? new int[n] : null;
+    forEach(pool, chunks, c -> {
+      int[] o = counts[c];
+      for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+        long k = keys[i];
+        int at = o[digit(k, msd)]++;
+        tmp[at] = k;
+        if (payloads != null) { ptmp[at] = payloads[i]; }
+      }
+    });
+    forEach(pool, RADIX, b -> lsdSort(tmp, keys, ptmp, payloads, starts[b], starts[b + 1], msd));
+  }
+
+  public static void radixSort(long[] keys, int[] payloads) {
+    radixSort(keys, payloads, ForkJoinPool.commonPool());
+  }
+
+  public static void radixSort(long[] keys) {
+    radixSort(keys, null, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Searches a sorted array by interpolating between the values at both ends of the search
+   * range. On uniformly distributed keys, such as hashes, this takes
+   * <code>O(log log n)</code> probes. Skewed arrays fall back to binary search.
+   *
+   * @param a an array sorted in ascending order.
+   * @param key the key to search for.
+   * @return same as {@link Arrays#binarySearch(long[], long)}.
+   */
+  public static int interpolationSearch(long[] a, long key) {
+    int lo = 0, hi = a.length - 1;
+    int probes = 2 * (32 - Integer.numberOfLeadingZeros(a.length));
+    while (lo <= hi) {
+      long l = a[lo], h = a[hi];
+      if (key < l) {
+        return -(lo + 1);
+      }
+      if (key > h) {
+        return -(hi + 2);
+      }
+      if (l == h) {
+        return lo;
+      }
+      if (probes-- == 0) {
+        return Arrays.binarySearch(a, lo, hi + 1, key);
+      }
+      int mid = lo + (int) (((double) key - l) / ((double) h - l) * (hi - lo));
+      mid = Math.max(lo, Math.min(hi, mid));
+      long m = a[mid];
+      if (m < key) {
+        lo = mid + 1;
+      } else if (m > key) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
 }
@@ -0,0 +1,214 @@
+package io.vacco.oruzka.core;
+
+import java.nio.*;
+
+/**
+ * Primitive reads and writes over byte arrays and buffers, in either byte order. This is the
+ * portable Java 8 implementation; the multi-release jar carries a Java 9+ variant of this
+ * class under <code>META-INF/versions/9</code> which accesses whole words through
+ * <code>VarHandle</code> byte array and buffer views. Both variants must keep the same public API.
+ *
+ * Buffer accessors use absolute offsets, and ignore (and keep) the buffer's own byte order
+ * and position.
+ */
+public class OzBits {
+
+  /**
+   * Checks that <code>[off, off + len)</code> lies within <code>b</code>. Checking a whole
+   * record once up front lets the JIT drop the per-access checks of the reads that follow.
+   */
+  public static void checkRange(byte[] b, int off, int len) {
+    OzCheck.isTrue(off >= 0 && len >= 0 && off <= b.length - len, "bits.index.out.of.bounds");
+  }
+
+  /* ================================ byte arrays ================================ */
+
+  public static short getShortLE(byte[] b, int off) {
+    return (short) ((b[off] & 0xFF) | (b[off + 1] << 8));
+  }
+
+  public static short getShortBE(byte[] b, int off) {
+    return (short) ((b[off] << 8) | (b[off + 1] & 0xFF));
+  }
+
+  public static int getIntLE(byte[] b, int off) {
+    return (((int) b[off + 3] & 0xFF) << 24)
+        | (((int) b[off + 2] & 0xFF) << 16)
+        | (((int) b[off + 1] & 0xFF) << 8)
+        | ((int) b[off] & 0xFF);
+  }
+
+  public static int getIntBE(byte[] b, int off) {
+    return Integer.reverseBytes(getIntLE(b, off));
+  }
+
+  public static long getLongLE(byte[] b, int off) {
+    return (((long) b[off + 7] & 0xFF) << 56)
+        | (((long) b[off + 6] & 0xFF) << 48)
+        | (((long) b[off + 5] & 0xFF) << 40)
+        | (((long) b[off + 4] & 0xFF) << 32)
+        | (((long) b[off + 3] & 0xFF) << 24)
+        | (((long) b[off + 2] & 0xFF) << 16)
+        | (((long) b[off + 1] & 0xFF) << 8)
+        | ((long) b[off] & 0xFF);
+  }
+
+  public static long getLongBE(byte[] b, int off) {
+    return Long.reverseBytes(getLongLE(b, off));
+  }
+
+  public static float getFloatLE(byte[] b, int off) {
+    return Float.intBitsToFloat(getIntLE(b, off));
+  }
+
+  public static float getFloatBE(byte[] b, int off) {
+    return Float.intBitsToFloat(getIntBE(b, off));
+  }
+
+  public static double getDoubleLE(byte[] b, int off) {
+    return Double.longBitsToDouble(getLongLE(b, off));
+  }
+
+  public static double getDoubleBE(byte[] b, int off) {
+    return Double.longBitsToDouble(getLongBE(b, off));
+  }
+
+  public static void putShortLE(byte[] b, int off, short v) {
+    b[off] = (byte) v;
+    b[off + 1] = (byte) (v >>> 8);
+  }
+
+  public static void putShortBE(byte[] b, int off, short v) {
+    b[off] = (byte) (v >>> 8);
+    b[off + 1] = (byte) v;
+  }
+
+  public static void putIntLE(byte[] b, int off, int v) {
+    b[off] = (byte) v;
+    b[off + 1] = (byte) (v >>> 8);
+    b[off + 2] = (byte) (v >>> 16);
+    b[off + 3] = (byte) (v >>> 24);
+  }
+
+  public static void putIntBE(byte[] b, int off, int v) {
+    putIntLE(b, off, Integer.reverseBytes(v));
+  }
+
+  public static void putLongLE(byte[] b, int off, long v) {
+    for (int i = 0; i < 8; i++) {
+      b[off + i] = (byte) (v >>> (i << 3));
+    }
+  }
+
+  public static void putLongBE(byte[] b, int off, long v) {
+    putLongLE(b, off, Long.reverseBytes(v));
+  }
+
+  public static void putFloatLE(byte[] b, int off, float v) {
+    putIntLE(b, off, Float.floatToRawIntBits(v));
+  }
+
+  public static void putFloatBE(byte[] b, int off, float v) {
+    putIntBE(b, off, Float.floatToRawIntBits(v));
+  }
+
+  public static void putDoubleLE(byte[] b, int off, double v) {
+    putLongLE(b, off, Double.doubleToRawLongBits(v));
+  }
+
+  public static void putDoubleBE(byte[] b, int off, double v) {
+    putLongBE(b, off, Double.doubleToRawLongBits(v));
+  }
+
+  /* ================================== buffers ================================== */
+
+  private static boolean le(ByteBuffer bb) {
+    return bb.order() == ByteOrder.LITTLE_ENDIAN;
+  }
+
+  public static short getShortLE(ByteBuffer bb, int off) {
+    short v = bb.getShort(off);
+    return le(bb) ? v : Short.reverseBytes(v);
+  }
+
+  public static short getShortBE(ByteBuffer bb, int off) {
+    short v = bb.getShort(off);
+    return le(bb) ? Short.reverseBytes(v) : v;
+  }
+
+  public static int getIntLE(ByteBuffer bb, int off) {
+    int v = bb.getInt(off);
+    return le(bb) ? v : Integer.reverseBytes(v);
+  }
+
+  public static int getIntBE(ByteBuffer bb, int off) {
+    int v = bb.getInt(off);
+    return le(bb) ? Integer.reverseBytes(v) : v;
+  }
+
+  public static long getLongLE(ByteBuffer bb, int off) {
+    long v = bb.getLong(off);
+    return le(bb) ? v : Long.reverseBytes(v);
+  }
+
+  public static long getLongBE(ByteBuffer bb, int off) {
+    long v = bb.getLong(off);
+    return le(bb) ? Long.reverseBytes(v) : v;
+  }
+
+  public static float getFloatLE(ByteBuffer bb, int off) {
+    return Float.intBitsToFloat(getIntLE(bb, off));
+  }
+
+  public static float getFloatBE(ByteBuffer bb, int off) {
+    return Float.intBitsToFloat(getIntBE(bb, off));
+  }
+
+  public static double getDoubleLE(ByteBuffer bb, int off) {
+    return Double.longBitsToDouble(getLongLE(bb, off));
+  }
+
+  public static double getDoubleBE(ByteBuffer bb, int off) {
+    return Double.longBitsToDouble(getLongBE(bb, off));
+  }
+
+  public static void putShortLE(ByteBuffer bb, int off, short v) {
+    bb.putShort(off, le(bb) ? v : Short.reverseBytes(v));
+  }
+
+  public static void putShortBE(ByteBuffer bb, int off, short v) {
+    bb.putShort(off, le(bb) ? Short.reverseBytes(v) : v);
+  }
+
+  public static void putIntLE(ByteBuffer bb, int off, int v) {
+    bb.putInt(off, le(bb) ? v : Integer.reverseBytes(v));
+  }
+
+  public static void putIntBE(ByteBuffer bb, int off, int v) {
+    bb.putInt(off, le(bb) ? Integer.reverseBytes(v) : v);
+  }
+
+  public static void putLongLE(ByteBuffer bb, int off, long v) {
+    bb.putLong(off, le(bb) ? v : Long.reverseBytes(v));
+  }
+
+  public static void putLongBE(ByteBuffer bb, int off, long v) {
+    bb.putLong(off, le(bb) ? Long.reverseBytes(v) : v);
+  }
+
+  public static void putFloatLE(ByteBuffer bb, int off, float v) {
+    putIntLE(bb, off, Float.floatToRawIntBits(v));
+  }
+
+  public static void putFloatBE(ByteBuffer bb, int off, float v) {
+    putIntBE(bb, off, Float.floatToRawIntBits(v));
+  }
+
+  public static void putDoubleLE(ByteBuffer bb, int off, double v) {
+    putLongLE(bb, off, Double.doubleToRawLongBits(v));
+  }
+
+  public static void putDoubleBE(ByteBuffer bb, int off, double v) {
+    putLongBE(bb, off, Double.doubleToRawLongBits(v));
+  }
+}
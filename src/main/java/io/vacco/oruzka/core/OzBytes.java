@@ -0,0 +1,200 @@
+package io.vacco.oruzka.core;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.Arrays;
+
+/**
+ * Growable byte array builder. Capacity doubles as needed, so appending <code>n</code> bytes
+ * copies <code>O(n)</code> bytes overall, and UTF-8 text is encoded straight into the builder.
+ *
+ * {@link #borrow()} hands out a per-thread builder which is reused once closed, so building
+ * a byte array only allocates the final {@link #toByteArray()} copy.
+ */
+public class OzBytes implements AutoCloseable {
+
+  public static final int MAX_POOLED = 1024 * 1024;
+  private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+  private static final ThreadLocal<OzBytes> pool = ThreadLocal.withInitial(() -> new OzBytes(256, true));
+
+  private byte[] buf;
+  private int size;
+  private final boolean pooled;
+  private boolean borrowed;
+
+  private OzBytes(int capacity, boolean pooled) {
+    OzCheck.isTrue(capacity >= 0, "bytes.invalid.capacity");
+    this.buf = new byte[capacity];
+    this.pooled = pooled;
+  }
+
+  public OzBytes(int capacity) {
+    this(capacity, false);
+  }
+
+  public OzBytes() {
+    this(64);
+  }
+
+  /**
+   * @return this thread's pooled builder, empty, or a new builder if the pooled one is
+   *         already borrowed. Close the builder to return it.
+   */
+  public static OzBytes borrow() {
+    OzBytes b = pool.get();
+    if (b.borrowed) {
+      return new OzBytes();
+    }
+    b.borrowed = true;
+    b.size = 0;
+    return b;
+  }
+
+  /** Returns a borrowed builder to its pool, dropping its buffer if it grew too large. */
+  @Override public void close() {
+    if (pooled && borrowed) {
+      borrowed = false;
+      size = 0;
+      if (buf.length > MAX_POOLED) {
+        buf = new byte[256];
+      }
+    }
+  }
+
+  public OzBytes ensure(int extra) {
+    long need = (long) size + extra;
+    OzCheck.isTrue(extra >= 0 && need <= MAX_SIZE, "bytes.too.large");
+    if (need > buf.length) {
+      buf = Arrays.copyOf(buf, (int) Math.min(MAX_SIZE, Math.max(need, (long) buf.length << 1)));
+    }
+    return this;
+  }
+
+  public OzBytes append(byte b) {
+    ensure(1);
+    buf[size++] = b;
+    return this;
+  }
+
+  public OzBytes append(byte[] b, int off, int len) {
+    ensure(len);
+    System.arraycopy(b, off, buf, size, len);
+    size += len;
+    return this;
+  }
+
+  public OzBytes append(byte[] b) {
+    return append(b, 0, b.length);
+  }
+
+  /** Appends the remaining bytes of <code>b</code>, without changing its position. */
+  public OzBytes append(ByteBuffer b) {
+    int n = b.remaining();
+    ensure(n);
+    b.duplicate().get(buf, size, n);
+    size += n;
+    return this;
+  }
+
+  /** Appends UTF-8 text. Unpaired surrogates are encoded as '?', as {@link String#getBytes(Charset)} does. */
+  public OzBytes appendUtf8(CharSequence cs) {
+    int n = cs.length();
+    ensure(n);
+    int i = 0;
+    for (; i < n; i++) { // ASCII prefix, within the ensured capacity
+      char c = cs.charAt(i);
+      if (c >= 0x80) {
+        break;
+      }
+      buf[size++] = (byte) c;
+    }
+    for (; i < n; i++) {
+      char c = cs.charAt(i);
+      if (c < 0x80) {
+        ensure(1);
+        buf[size++] = (byte) c;
+      } else if (c < 0x800) {
+        ensure(2);
+        buf[size++] = (byte) (0xC0 | (c >> 6));
+        buf[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        int cp = Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(cs.charAt(i + 1))
+            ? Character.toCodePoint(c, cs.charAt(++i)) : -1;
+        if (cp == -1) {
+          ensure(1);
+          buf[size++] = '?';
+        } else {
+          ensure(4);
+          buf[size++] = (byte) (0xF0 | (cp >> 18));
+          buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+          buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+          buf[size++] = (byte) (0x80 | (cp & 0x3F));
+        }
+      } else {
+        ensure(3);
+        buf[size++] = (byte) (0xE0 | (c >> 12));
+        buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buf[size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return this;
+  }
+
+  /** Appends text in an explicit charset (UTF-8 is encoded in place). */
+  public OzBytes append(CharSequence cs, Charset charset) {
+    if (charset == StandardCharsets.UTF_8) {
+      return appendUtf8(cs);
+    }
+    return append(charset.encode(CharBuffer.wrap(cs)));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public OzBytes reset() {
+    size = 0;
+    return this;
+  }
+
+  /** @return the backing array, valid up to {@link #size()} until the next append. */
+  public byte[] array() {
+    return buf;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buf, size);
+  }
+
+  public ByteBuffer asByteBuffer() {
+    return ByteBuffer.wrap(buf, 0, size);
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buf, 0, size);
+  }
+
+  @Override public String toString() {
+    return String.format("OzBytes[size: %d, capacity: %d]", size, buf.length);
+  }
+
+  /** @return the concatenation of <code>parts</code>, sized up front and copied once. Null parts are skipped. */
+  public static byte[] concatAll(byte[] ... parts) {
+    long n = 0;
+    for (byte[] p : parts) {
+      n += p == null ? 0 : p.length;
+    }
+    OzCheck.isTrue(n <= MAX_SIZE, "bytes.too.large");
+    byte[] out = new byte[(int) n];
+    int off = 0;
+    for (byte[] p : parts) {
+      if (p != null) {
+        System.arraycopy(p, 0, out, off, p.length);
+        off += p.length;
+      }
+    }
+    return out;
+  }
+}
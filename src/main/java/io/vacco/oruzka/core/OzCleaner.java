@@ -0,0 +1,32 @@
+package io.vacco.oruzka.core;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Releases the native memory of direct buffers without waiting for garbage collection,
+ * through the JDK 8 <code>DirectBuffer.cleaner()</code> method. Where that method is not
+ * accessible (a Java 9+ runtime loading this variant), buffers are left to the garbage collector.
+ */
+class OzCleaner {
+
+  private static volatile boolean unavailable;
+
+  static void free(ByteBuffer b) {
+    if (!b.isDirect() || unavailable) {
+      return;
+    }
+    try {
+      Method cleaner = b.getClass().getMethod("cleaner");
+      cleaner.setAccessible(true);
+      Object c = cleaner.invoke(b);
+      if (c != null) {
+        Method clean = c.getClass().getMethod("clean");
+        clean.setAccessible(true);
+        clean.invoke(c);
+      }
+    } catch (Exception e) {
+      unavailable = true;
+    }
+  }
+}
@@ -0,0 +1,384 @@
+package io.vacco.oruzka.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Hex, base64 and LEB128 varint codecs, which read from and write into caller supplied
+ * buffers. Encoders return the end offset in the target, so calls can be chained into a
+ * single pre-sized array without intermediate copies.
+ *
+ * Malformed input fails with an {@link IllegalStateException}.
+ */
+public class OzCodec {
+
+  private static final char[] HEX_UPPER = pairs("0123456789ABCDEF");
+  private static final char[] HEX_LOWER = pairs("0123456789abcdef");
+  private static final byte[] HEX_VALUES = new byte[128];
+
+  private static final char[] B64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  private static final char[] B64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+  private static final byte[] B64_VALUES = new byte[128];
+
+  static {
+    java.util.Arrays.fill(HEX_VALUES, (byte) -1);
+    for (int i = 0; i < 16; i++) {
+      HEX_VALUES["0123456789abcdef".charAt(i)] = (byte) i;
+      HEX_VALUES["0123456789ABCDEF".charAt(i)] = (byte) i;
+    }
+    java.util.Arrays.fill(B64_VALUES, (byte) -1);
+    for (int i = 0; i < 64; i++) {
+      B64_VALUES[B64[i]] = (byte) i;
+      B64_VALUES[B64_URL[i]] = (byte) i;
+    }
+  }
+
+  /** @return the two hex digits of every byte value, at <code>[2 * b, 2 * b + 1]</code>. */
+  private static char[] pairs(String digits) {
+    char[] t = new char[512];
+    for (int b = 0; b < 256; b++) {
+      t[b << 1] = digits.charAt(b >>> 4);
+      t[(b << 1) + 1] = digits.charAt(b & 0x0F);
+    }
+    return t;
+  }
+
+  private static void append(Appendable out, char c) {
+    try {
+      out.append(c);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /* ===================================== hex ===================================== */
+
+  public static int hexEncode(byte[] src, int off, int len, char[] dst, int dstOff, boolean upper) {
+    char[] t = upper ? HEX_UPPER : HEX_LOWER;
+    for (int i = off, end = off + len; i < end; i++) {
+      int p = (src[i] & 0xFF) << 1;
+      dst[dstOff++] = t[p];
+      dst[dstOff++] = t[p + 1];
+    }
+    return dstOff;
+  }
+
+  /** Writes hex digits as ASCII bytes. */
+  public static int hexEncode(byte[] src, int off, int len, byte[] dst, int dstOff, boolean upper) {
+    char[] t = upper ? HEX_UPPER : HEX_LOWER;
+    for (int i = off, end = off + len; i < end; i++) {
+      int p = (src[i] & 0xFF) << 1;
+      dst[dstOff++] = (byte) t[p];
+      dst[dstOff++] = (byte) t[p + 1];
+    }
+    return dstOff;
+  }
+
+  /** Writes the remaining bytes of <code>src</code> as ASCII hex digits into <code>dst</code>, consuming both. */
+  public static void hexEncode(ByteBuffer src, ByteBuffer dst, boolean upper) {
+    char[] t = upper ? HEX_UPPER : HEX_LOWER;
+    while (src.hasRemaining()) {
+      int p = (src.get() & 0xFF) << 1;
+      dst.put((byte) t[p]).put((byte) t[p + 1]);
+    }
+  }
+
+  public static <A extends Appendable> A hexEncode(byte[] src, int off, int len, A out, boolean upper) {
+    char[] t = upper ? HEX_UPPER : HEX_LOWER;
+    for (int i = off, end = off + len; i < end; i++) {
+      int p = (src[i] & 0xFF) << 1;
+      append(out, t[p]);
+      append(out, t[p + 1]);
+    }
+    return out;
+  }
+
+  public static String hex(byte[] src, boolean upper) {
+    char[] out = new char[src.length << 1];
+    hexEncode(src, 0, src.length, out, 0, upper);
+    return new String(out);
+  }
+
+  private static int hexValue(int c) {
+    int v = c < 128 ? HEX_VALUES[c] : -1;
+    OzCheck.isTrue(v >= 0, "codec.invalid.hex");
+    return v;
+  }
+
+  /**
+   * Decodes hex digits of either case.
+   *
+   * @return the end offset in <code>dst</code>.
+   */
+  public static int hexDecode(CharSequence src, int off, int len, byte[] dst, int dstOff) {
+    OzCheck.isTrue((len & 1) == 0, "codec.invalid.hex.length");
+    for (int i = off, end = off + len; i < end; i += 2) {
+      dst[dstOff++] = (byte) (hexValue(src.charAt(i)) << 4 | hexValue(src.charAt(i + 1)));
+    }
+    return dstOff;
+  }
+
+  public static int hexDecode(char[] src, int off, int len, byte[] dst, int dstOff) {
+    OzCheck.isTrue((len & 1) == 0, "codec.invalid.hex.length");
+    for (int i = off, end = off + len; i < end; i += 2) {
+      dst[dstOff++] = (byte) (hexValue(src[i]) << 4 | hexValue(src[i + 1]));
+    }
+    return dstOff;
+  }
+
+  /** Decodes the remaining ASCII hex digits of <code>src</code> into <code>dst</code>, consuming both. */
+  public static void hexDecode(ByteBuffer src, ByteBuffer dst) {
+    OzCheck.isTrue((src.remaining() & 1) == 0, "codec.invalid.hex.length");
+    while (src.hasRemaining()) {
+      dst.put((byte) (hexValue(src.get() & 0xFF) << 4 | hexValue(src.get() & 0xFF)));
+    }
+  }
+
+  public static byte[] hexDecode(CharSequence src) {
+    byte[] out = new byte[src.length() >> 1];
+    hexDecode(src, 0, src.length(), out, 0);
+    return out;
+  }
+
+  /* ==================================== base64 =================================== */
+
+  /** @return the number of characters needed to encode <code>len</code> bytes. */
+  public static int base64Length(int len, boolean pad) {
+    return pad ? (len + 2) / 3 * 4 : (len / 3 * 4) + (len % 3 == 0 ? 0 : len % 3 + 1);
+  }
+
+  /** @return the number of bytes encoded by <code>len</code> characters, excluding padding. */
+  public static int base64DecodedLength(int len) {
+    OzCheck.isTrue(len % 4 != 1, "codec.invalid.base64.length");
+    return len / 4 * 3 + (len % 4 == 0 ? 0 : len % 4 - 1);
+  }
+
+  private interface CharSink { void put(int i, char c); }
+
+  private static int base64Encode(byte[] src, int off, int len, CharSink dst, int dstOff, boolean url, boolean pad) {
+    char[] a = url ? B64_URL : B64;
+    int i = off, end = off + len, full = off + len / 3 * 3;
+    for (; i < full; i += 3) {
+      int b = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+      dst.put(dstOff++, a[b >>> 18]);
+      dst.put(dstOff++, a[(b >>> 12) & 0x3F]);
+      dst.put(dstOff++, a[(b >>> 6) & 0x3F]);
+      dst.put(dstOff++, a[b & 0x3F]);
+    }
+    if (i < end) {
+      int b0 = src[i] & 0xFF, b1 = i + 1 < end ? src[i + 1] & 0xFF : 0;
+      dst.put(dstOff++, a[b0 >>> 2]);
+      dst.put(dstOff++, a[(b0 << 4 | b1 >>> 4) & 0x3F]);
+      if (i + 1 < end) {
+        dst.put(dstOff++, a[(b1 << 2) & 0x3F]);
+      } else if (pad) {
+        dst.put(dstOff++, '=');
+      }
+      if (pad) {
+        dst.put(dstOff++, '=');
+      }
+    }
+    return dstOff;
+  }
+
+  /**
+   * @param url use the URL and file name safe alphabet (RFC 4648, section 5).
+   * @param pad append '=' padding.
+   * @return the end offset in <code>dst</code>.
+   */
+  public static int base64Encode(byte[] src, int off, int len, char[] dst, int dstOff, boolean url, boolean pad) {
+    char[] a = url ? B64_URL : B64;
+    int full = off + len / 3 * 3;
+    for (int i = off; i < full; i += 3) { // whole groups, without per character dispatch
+      int b = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+      dst[dstOff++] = a[b >>> 18];
+      dst[dstOff++] = a[(b >>> 12) & 0x3F];
+      dst[dstOff++] = a[(b >>> 6) & 0x3F];
+      dst[dstOff++] = a[b & 0x3F];
+    }
+    return base64Encode(src, full, off + len - full, (i, c) -> dst[i] = c, dstOff, url, pad);
+  }
+
+  /** Writes base64 characters as ASCII bytes. */
+  public static int base64Encode(byte[] src, int off, int len, byte[] dst, int dstOff, boolean url, boolean pad) {
+    char[] a = url ? B64_URL : B64;
+    int full = off + len / 3 * 3;
+    for (int i = off; i < full; i += 3) {
+      int b = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+      dst[dstOff++] = (byte) a[b >>> 18];
+      dst[dstOff++] = (byte) a[(b >>> 12) & 0x3F];
+      dst[dstOff++] = (byte) a[(b >>> 6) & 0x3F];
+      dst[dstOff++] = (byte) a[b & 0x3F];
+    }
+    return base64Encode(src, full, off + len - full, (i, c) -> dst[i] = (byte) c, dstOff, url, pad);
+  }
+
+  /** Writes the remaining bytes of <code>src</code> as ASCII base64 into <code>dst</code>, consuming both. */
+  public static void base64Encode(ByteBuffer src, ByteBuffer dst, boolean url, boolean pad) {
+    ByteBuffer in = src.slice();
+    byte[] a = in.hasArray() ? in.array() : null;
+    int p = dst.position(), base = a != null ? in.arrayOffset() : 0;
+    if (a == null) { // direct buffers, read in 3 byte groups
+      a = new byte[3];
+      while (in.remaining() >= 3) {
+        in.get(a);
+        p = base64Encode(a, 0, 3, (i, c) -> dst.put(i, (byte) c), p, url, pad);
+      }
+      int r = in.remaining();
+      in.get(a, 0, r);
+      p = base64Encode(a, 0, r, (i, c) -> dst.put(i, (byte) c), p, url, pad);
+    } else {
+      p = base64Encode(a, base, in.remaining(), (i, c) -> dst.put(i, (byte) c), p, url, pad);
+    }
+    src.position(src.limit());
+    dst.position(p);
+  }
+
+  public static <A extends Appendable> A base64Encode(byte[] src, int off, int len, A out, boolean url, boolean pad) {
+    base64Encode(src, off, len, (i, c) -> append(out, c), 0, url, pad);
+    return out;
+  }
+
+  public static String base64(byte[] src, boolean url, boolean pad) {
+    char[] out = new char[base64Length(src.length, pad)];
+    base64Encode(src, 0, src.length, out, 0, url, pad);
+    return new String(out);
+  }
+
+  private interface CharSource { int get(int i); }
+
+  private static int b64Value(int c) {
+    int v = c < 128 ? B64_VALUES[c] : -1;
+    OzCheck.isTrue(v >= 0, "codec.invalid.base64");
+    return v;
+  }
+
+  private static int base64Decode(CharSource src, int off, int len, byte[] dst, int dstOff) {
+    int end = off + len;
+    while (end > off && src.get(end - 1) == '=') {
+      end--;
+    }
+    OzCheck.isTrue(off + len - end <= 2, "codec.invalid.base64");
+    int i = off, full = off + (end - off) / 4 * 4;
+    for (; i < full; i += 4) {
+      int b = b64Value(src.get(i)) << 18 | b64Value(src.get(i + 1)) << 12
+          | b64Value(src.get(i + 2)) << 6 | b64Value(src.get(i + 3));
+      dst[dstOff++] = (byte) (b >>> 16);
+      dst[dstOff++] = (byte) (b >>> 8);
+      dst[dstOff++] = (byte) b;
+    }
+    int r = end - i;
+    OzCheck.isTrue(r != 1, "codec.invalid.base64.length");
+    if (r > 1) {
+      int b = b64Value(src.get(i)) << 18 | b64Value(src.get(i + 1)) << 12 | (r == 3 ? b64Value(src.get(i + 2)) << 6 : 0);
+      dst[dstOff++] = (byte) (b >>> 16);
+      if (r == 3) {
+        dst[dstOff++] = (byte) (b >>> 8);
+      }
+    }
+    return dstOff;
+  }
+
+  /**
+   * Decodes base64 in either alphabet, with or without padding.
+   *
+   * @return the end offset in <code>dst</code>.
+   */
+  public static int base64Decode(CharSequence src, int off, int len, byte[] dst, int dstOff) {
+    return base64Decode(src::charAt, off, len, dst, dstOff);
+  }
+
+  public static int base64Decode(char[] src, int off, int len, byte[] dst, int dstOff) {
+    return base64Decode(i -> src[i], off, len, dst, dstOff);
+  }
+
+  /** Decodes ASCII base64 bytes. */
+  public static int base64Decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+    int i = off, full = off + Math.max(0, len - 4) / 4 * 4; // the last group may be padded
+    for (; i < full; i += 4) {
+      int b = B64_VALUES[src[i] & 0x7F] << 18 | B64_VALUES[src[i + 1] & 0x7F] << 12
+          | B64_VALUES[src[i + 2] & 0x7F] << 6 | B64_VALUES[src[i + 3] & 0x7F];
+      OzCheck.isTrue(b >= 0 && (src[i] | src[i + 1] | src[i + 2] | src[i + 3]) >= 0, "codec.invalid.base64");
+      dst[dstOff++] = (byte) (b >>> 16);
+      dst[dstOff++] = (byte) (b >>> 8);
+      dst[dstOff++] = (byte) b;
+    }
+    return base64Decode(j -> src[j] & 0xFF, i, off + len - i, dst, dstOff);
+  }
+
+  public static byte[] base64Decode(CharSequence src) {
+    int n = src.length();
+    while (n > 0 && src.charAt(n - 1) == '=') {
+      n--;
+    }
+    byte[] out = new byte[base64DecodedLength(n)];
+    base64Decode(src, 0, src.length(), out, 0);
+    return out;
+  }
+
+  /* ================================ LEB128 varints =============================== */
+
+  public static long zigZag(long v) {
+    return (v << 1) ^ (v >> 63);
+  }
+
+  public static long unZigZag(long v) {
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  /** @return the number of bytes needed to encode <code>v</code> as an unsigned varint, 1 to 10. */
+  public static int varLongLength(long v) {
+    return v == 0 ? 1 : (70 - Long.numberOfLeadingZeros(v)) / 7;
+  }
+
+  /**
+   * Writes <code>v</code> as an unsigned LEB128 varint. Use {@link #zigZag(long)} first
+   * for signed values which may be negative.
+   *
+   * @return the end offset in <code>dst</code>.
+   */
+  public static int putVarLong(long v, byte[] dst, int off) {
+    while ((v & ~0x7FL) != 0) {
+      dst[off++] = (byte) (v | 0x80);
+      v >>>= 7;
+    }
+    dst[off++] = (byte) v;
+    return off;
+  }
+
+  public static ByteBuffer putVarLong(long v, ByteBuffer dst) {
+    while ((v & ~0x7FL) != 0) {
+      dst.put((byte) (v | 0x80));
+      v >>>= 7;
+    }
+    return dst.put((byte) v);
+  }
+
+  /**
+   * Reads an unsigned LEB128 varint. The encoded length is {@link #varLongLength(long)} of
+   * the returned value for canonical input.
+   */
+  public static long getVarLong(byte[] src, int off) {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = src[off++];
+      v |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return v;
+      }
+    }
+    throw new IllegalStateException("codec.invalid.varint");
+  }
+
+  public static long getVarLong(ByteBuffer src) {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = src.get();
+      v |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return v;
+      }
+    }
+    throw new IllegalStateException("codec.invalid.varint");
+  }
+}
@@ -0,0 +1,277 @@
+package io.vacco.oruzka.core;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * Off-heap primitive arrays, which keep large tables out of the garbage collector's way.
+ *
+ * Arrays are backed by native byte order direct buffers of up to {@value #CHUNK_BYTES} bytes
+ * each, so lengths may go past <code>2^31</code> elements. Direct memory is bounded by
+ * <code>-XX:MaxDirectMemorySize</code>, and is released by {@link #free()} (or
+ * {@link #close()}) instead of waiting for the buffers to be collected.
+ *
+ * Checked arrays validate indices and reject use after free with an
+ * {@link IllegalStateException}. Unchecked arrays skip those checks; an out of range index
+ * still fails inside the backing buffer, and use after free fails with a
+ * {@link NullPointerException}, never with a native memory fault.
+ *
+ * Arrays are not thread safe, in the same way as plain Java arrays.
+ */
+public abstract class OzOffHeap implements AutoCloseable {
+
+  public static final int CHUNK_SHIFT = 30;
+  public static final int CHUNK_BYTES = 1 << CHUNK_SHIFT;
+  static final long CHUNK_MASK = CHUNK_BYTES - 1;
+
+  protected ByteBuffer[] chunks;
+  protected final long length;
+  protected final boolean checked;
+  private final boolean owner;
+
+  OzOffHeap(ByteBuffer[] chunks, long length, boolean checked, boolean owner) {
+    this.chunks = chunks;
+    this.length = length;
+    this.checked = checked;
+    this.owner = owner;
+  }
+
+  static ByteBuffer[] allocate(long bytes) {
+    OzCheck.isTrue(bytes >= 0, "offheap.invalid.size");
+    int n = (int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+    ByteBuffer[] out = new ByteBuffer[n];
+    for (int i = 0; i < n; i++) {
+      long size = Math.min(CHUNK_BYTES, bytes - ((long) i << CHUNK_SHIFT));
+      out[i] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+    }
+    return out;
+  }
+
+  /** @return <code>length</code> elements of <code>1 &lt;&lt; shift</code> bytes, in bytes. */
+  static long sizeOf(long length, int shift) {
+    OzCheck.isTrue(length >= 0 && length <= Long.MAX_VALUE >>> shift, "offheap.invalid.size");
+    return length << shift;
+  }
+
+  final void check(long i) {
+    OzCheck.isTrue(chunks != null, "offheap.freed");
+    OzCheck.isTrue(i >= 0 && i < length, "offheap.index.out.of.bounds");
+  }
+
+  final void checkRange(long i, int len) {
+    OzCheck.isTrue(chunks != null, "offheap.freed");
+    OzCheck.isTrue(len >= 0 && i >= 0 && i <= length - len, "offheap.index.out.of.bounds");
+  }
+
+  public long length() {
+    return length;
+  }
+
+  public boolean isFreed() {
+    return chunks == null;
+  }
+
+  /**
+   * Releases the native memory of this array. Arrays carved from an {@link Arena} are only
+   * detached; their memory is released with the arena.
+   */
+  public void free() {
+    ByteBuffer[] c = chunks;
+    chunks = null;
+    if (c != null && owner) {
+      for (ByteBuffer b : c) {
+        OzCleaner.free(b);
+      }
+    }
+  }
+
+  @Override public void close() {
+    free();
+  }
+
+  public static final class Longs extends OzOffHeap {
+    Longs(ByteBuffer[] chunks, long length, boolean checked, boolean owner) {
+      super(chunks, length, checked, owner);
+    }
+    public long get(long i) {
+      if (checked) { check(i); }
+      long b = i << 3;
+      return chunks[(int) (b >>> CHUNK_SHIFT)].getLong((int) (b & CHUNK_MASK));
+    }
+    public void set(long i, long v) {
+      if (checked) { check(i); }
+      long b = i << 3;
+      chunks[(int) (b >>> CHUNK_SHIFT)].putLong((int) (b & CHUNK_MASK), v);
+    }
+    public long addAndGet(long i, long delta) {
+      long v = get(i) + delta;
+      set(i, v);
+      return v;
+    }
+    public void fill(long v) {
+      for (long i = 0; i < length; i++) { set(i, v); }
+    }
+  }
+
+  public static final class Ints extends OzOffHeap {
+    Ints(ByteBuffer[] chunks, long length, boolean checked, boolean owner) {
+      super(chunks, length, checked, owner);
+    }
+    public int get(long i) {
+      if (checked) { check(i); }
+      long b = i << 2;
+      return chunks[(int) (b >>> CHUNK_SHIFT)].getInt((int) (b & CHUNK_MASK));
+    }
+    public void set(long i, int v) {
+      if (checked) { check(i); }
+      long b = i << 2;
+      chunks[(int) (b >>> CHUNK_SHIFT)].putInt((int) (b & CHUNK_MASK), v);
+    }
+    public void fill(int v) {
+      for (long i = 0; i < length; i++) { set(i, v); }
+    }
+  }
+
+  public static final class Bytes extends OzOffHeap {
+    Bytes(ByteBuffer[] chunks, long length, boolean checked, boolean owner) {
+      super(chunks, length, checked, owner);
+    }
+    public byte get(long i) {
+      if (checked) { check(i); }
+      return chunks[(int) (i >>> CHUNK_SHIFT)].get((int) (i & CHUNK_MASK));
+    }
+    public void set(long i, byte v) {
+      if (checked) { check(i); }
+      chunks[(int) (i >>> CHUNK_SHIFT)].put((int) (i & CHUNK_MASK), v);
+    }
+    /** Copies <code>len</code> bytes from <code>src</code> into this array, starting at index <code>i</code>. */
+    public void set(long i, byte[] src, int off, int len) {
+      if (checked) { checkRange(i, len); }
+      while (len > 0) {
+        ByteBuffer c = chunks[(int) (i >>> CHUNK_SHIFT)].duplicate();
+        c.position((int) (i & CHUNK_MASK));
+        int n = Math.min(len, c.remaining());
+        if (n == 0) { throw new BufferOverflowException(); }
+        c.put(src, off, n);
+        i += n;
+        off += n;
+        len -= n;
+      }
+    }
+    /** Copies <code>len</code> bytes from this array, starting at index <code>i</code>, into <code>dst</code>. */
+    public void get(long i, byte[] dst, int off, int len) {
+      if (checked) { checkRange(i, len); }
+      while (len > 0) {
+        ByteBuffer c = chunks[(int) (i >>> CHUNK_SHIFT)].duplicate();
+        c.position((int) (i & CHUNK_MASK));
+        int n = Math.min(len, c.remaining());
+        if (n == 0) { throw new BufferUnderflowException(); }
+        c.get(dst, off, n);
+        i += n;
+        off += n;
+        len -= n;
+      }
+    }
+  }
+
+  public static Longs longs(long length, boolean checked) {
+    return new Longs(allocate(sizeOf(length, 3)), length, checked, true);
+  }
+
+  public static Ints ints(long length, boolean checked) {
+    return new Ints(allocate(sizeOf(length, 2)), length, checked, true);
+  }
+
+  public static Bytes bytes(long length, boolean checked) {
+    return new Bytes(allocate(length), length, checked, true);
+  }
+
+  /**
+   * Bump allocator, which carves arrays out of shared direct buffer pages. Carving is a
+   * pointer increment, and all the arrays of an arena are released together by
+   * {@link #free()}. Requests larger than a page get dedicated chunks. Not thread safe.
+   */
+  public static final class Arena implements AutoCloseable {
+
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024 * 1024;
+
+    private final int pageSize;
+    private final boolean checked;
+    private final List<ByteBuffer> owned = new ArrayList<>();
+    private final List<OzOffHeap> carved = new ArrayList<>();
+    private ByteBuffer page;
+    private int top;
+    private long allocated;
+
+    public Arena(int pageSize, boolean checked) {
+      OzCheck.isTrue(pageSize >= 8 && pageSize <= CHUNK_BYTES && pageSize % 8 == 0, "offheap.invalid.page.size");
+      this.pageSize = pageSize;
+      this.checked = checked;
+    }
+
+    public Arena() {
+      this(DEFAULT_PAGE_SIZE, false);
+    }
+
+    private ByteBuffer[] carve(long bytes) {
+      OzCheck.isTrue(bytes >= 0, "offheap.invalid.size");
+      allocated += bytes;
+      if (bytes > pageSize) {
+        ByteBuffer[] c = allocate(bytes);
+        owned.addAll(Arrays.asList(c));
+        return c;
+      }
+      long aligned = (bytes + 7) & ~7L;
+      if (page == null || top + aligned > pageSize) {
+        page = ByteBuffer.allocateDirect(pageSize);
+        owned.add(page);
+        top = 0;
+      }
+      ByteBuffer s = page.duplicate();
+      s.position(top).limit(top + (int) bytes);
+      top += (int) aligned;
+      return new ByteBuffer[] {s.slice().order(ByteOrder.nativeOrder())};
+    }
+
+    private <T extends OzOffHeap> T track(T array) {
+      carved.add(array);
+      return array;
+    }
+
+    public Longs longs(long length) {
+      return track(new Longs(carve(sizeOf(length, 3)), length, checked, false));
+    }
+
+    public Ints ints(long length) {
+      return track(new Ints(carve(sizeOf(length, 2)), length, checked, false));
+    }
+
+    public Bytes bytes(long length) {
+      return track(new Bytes(carve(length), length, checked, false));
+    }
+
+    /** @return the number of bytes handed out, excluding alignment padding. */
+    public long allocated() {
+      return allocated;
+    }
+
+    /** Detaches every array carved from this arena, and releases its pages. The arena can be reused. */
+    public void free() {
+      for (OzOffHeap a : carved) {
+        a.free();
+      }
+      carved.clear();
+      for (ByteBuffer b : owned) {
+        OzCleaner.free(b);
+      }
+      owned.clear();
+      page = null;
+      top = 0;
+      allocated = 0;
+    }
+
+    @Override public void close() {
+      free();
+    }
+  }
+}
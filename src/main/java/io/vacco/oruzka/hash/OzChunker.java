@@ -0,0 +1,204 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.*;
+
+import java.io.InputStream;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Content-defined chunker (FastCDC). A gear rolling hash picks chunk boundaries from the
+ * content itself, so inserting or removing bytes only changes the chunks around the edit.
+ * Boundaries use normalized chunking: a stricter mask below the average chunk size and a
+ * looser one above it, which narrows the chunk size distribution around the average.
+ *
+ * Each chunk is reported as an (offset, length, XXH64) record. The gear table is derived from a
+ * fixed seed, and is part of the boundary definition: changing it changes every chunk.
+ */
+public class OzChunker {
+
+  public static final int DEFAULT_MIN = 2 * 1024, DEFAULT_AVG = 8 * 1024, DEFAULT_MAX = 64 * 1024;
+
+  private static final long[] GEAR = new long[256];
+
+  static {
+    long x = 0x6F72757A6B61L; // "oruzka"
+    for (int i = 0; i < GEAR.length; i++) { // splitmix64
+      long z = (x += 0x9E3779B97F4A7C15L);
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      GEAR[i] = z ^ (z >>> 31);
+    }
+  }
+
+  @FunctionalInterface
+  public interface Sink {
+    void onChunk(long offset, int length, long hash);
+  }
+
+  public static class Chunk {
+
+    public final long offset, hash;
+    public final int length;
+
+    public Chunk(long offset, int length, long hash) {
+      this.offset = offset;
+      this.length = length;
+      this.hash = hash;
+    }
+
+    @Override public String toString() {
+      return String.format("[%d, %d, %016x]", offset, length, hash);
+    }
+  }
+
+  public final int minSize, avgSize, maxSize;
+  private final long maskS, maskL;
+
+  public OzChunker(int minSize, int avgSize, int maxSize) {
+    OzCheck.isTrue(64 <= minSize && minSize < avgSize && avgSize < maxSize, "chunker.invalid.sizes");
+    OzCheck.isTrue(maxSize < OzXxHash.MAP_WINDOW, "chunker.max.size.too.large");
+    this.minSize = minSize;
+    this.avgSize = avgSize;
+    this.maxSize = maxSize;
+    int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+    this.maskS = -1L << (64 - (bits + 2));
+    this.maskL = -1L << (64 - (bits - 2));
+  }
+
+  public OzChunker() {
+    this(DEFAULT_MIN, DEFAULT_AVG, DEFAULT_MAX);
+  }
+
+  /**
+   * @param b the data.
+   * @param off the start of the next chunk.
+   * @param n the number of bytes available from <code>off</code>.
+   * @return the length of the chunk starting at <code>off</code>.
+   */
+  public int cut(byte[] b, int off, int n) {
+    if (n <= minSize) {
+      return n;
+    }
+    n = Math.min(n, maxSize);
+    int normal = Math.min(avgSize, n);
+    long fp = 0;
+    int i = minSize;
+    for (; i < normal; i++) {
+      fp = (fp << 1) + GEAR[b[off + i] & 0xFF];
+      if ((fp & maskS) == 0) return i + 1;
+    }
+    for (; i < n; i++) {
+      fp = (fp << 1) + GEAR[b[off + i] & 0xFF];
+      if ((fp & maskL) == 0) return i + 1;
+    }
+    return n;
+  }
+
+  public int cut(ByteBuffer bb, int off, int n) {
+    if (n <= minSize) {
+      return n;
+    }
+    n = Math.min(n, maxSize);
+    int normal = Math.min(avgSize, n);
+    long fp = 0;
+    int i = minSize;
+    for (; i < normal; i++) {
+      fp = (fp << 1) + GEAR[bb.get(off + i) & 0xFF];
+      if ((fp & maskS) == 0) return i + 1;
+    }
+    for (; i < n; i++) {
+      fp = (fp << 1) + GEAR[bb.get(off + i) & 0xFF];
+      if ((fp & maskL) == 0) return i + 1;
+    }
+    return n;
+  }
+
+  public void chunk(byte[] b, int off, int len, Sink sink) {
+    for (int p = off, end = off + len; p < end; ) {
+      int n = cut(b, p, end - p);
+      sink.onChunk(p - off, n, OzXxHash.hash64(b, p, n, 0));
+      p += n;
+    }
+  }
+
+  /**
+   * Chunks a stream through a buffer of twice the maximum chunk size. The stream is read
+   * until exhausted, but not closed.
+   *
+   * @param is the stream to chunk.
+   * @param sink the chunk record consumer.
+   */
+  public void chunk(InputStream is, Sink sink) {
+    OFnBlock.tryRun(() -> {
+      byte[] buf = new byte[maxSize * 2];
+      int start = 0, end = 0;
+      long offset = 0;
+      boolean eof = false;
+      while (true) {
+        if (!eof && end - start < maxSize) {
+          System.arraycopy(buf, start, buf, 0, end - start);
+          end -= start;
+          start = 0;
+          while (end < buf.length) {
+            int r = is.read(buf, end, buf.length - end);
+            if (r == -1) {
+              eof = true;
+              break;
+            }
+            end += r;
+          }
+        }
+        if (start == end) {
+          return;
+        }
+        int n = cut(buf, start, end - start);
+        sink.onChunk(offset, n, OzXxHash.hash64(buf, start, n, 0));
+        offset += n;
+        start += n;
+      }
+    });
+  }
+
+  /**
+   * Chunks a file through read-only mapped windows of {@link OzXxHash#MAP_WINDOW} bytes.
+   *
+   * @param file the file to chunk.
+   * @param sink the chunk record consumer.
+   */
+  public void chunk(Path file, Sink sink) {
+    OFnBlock.tryRun(() -> {
+      try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+        long size = fc.size();
+        for (long pos = 0; pos < size; ) {
+          int wLen = (int) Math.min(OzXxHash.MAP_WINDOW, size - pos);
+          boolean last = pos + wLen == size;
+          MappedByteBuffer mb = fc.map(FileChannel.MapMode.READ_ONLY, pos, wLen);
+          int p = 0;
+          while (p < wLen && (last || wLen - p >= maxSize)) {
+            int n = cut(mb, p, wLen - p);
+            mb.limit(p + n).position(p);
+            sink.onChunk(pos + p, n, OzXxHash.hash64(mb, 0));
+            mb.limit(wLen);
+            p += n;
+          }
+          pos += p;
+        }
+      }
+    });
+  }
+
+  public List<Chunk> chunksOf(Path file) {
+    List<Chunk> out = new ArrayList<>();
+    chunk(file, (offset, length, hash) -> out.add(new Chunk(offset, length, hash)));
+    return out;
+  }
+
+  public List<Chunk> chunksOf(InputStream is) {
+    List<Chunk> out = new ArrayList<>();
+    chunk(is, (offset, length, hash) -> out.add(new Chunk(offset, length, hash)));
+    return out;
+  }
+}
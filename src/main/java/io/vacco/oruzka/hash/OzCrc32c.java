@@ -0,0 +1,89 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.OzBits;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum. This is the portable Java 8 implementation (table driven,
+ * slicing by 8); the multi-release jar carries a Java 9+ variant of this class which delegates
+ * to the intrinsified <code>java.util.zip.CRC32C</code>. Both variants must keep the same public API.
+ */
+public class OzCrc32c implements Checksum {
+
+  private static final int POLY = 0x82F63B78;
+  private static final int[][] T = new int[8][256];
+
+  static {
+    for (int n = 0; n < 256; n++) {
+      int c = n;
+      for (int k = 0; k < 8; k++) {
+        c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+      }
+      T[0][n] = c;
+    }
+    for (int n = 0; n < 256; n++) {
+      for (int k = 1; k < 8; k++) {
+        T[k][n] = (T[k - 1][n] >>> 8) ^ T[0][T[k - 1][n] & 0xFF];
+      }
+    }
+  }
+
+  private int crc = 0xFFFFFFFF;
+
+  @Override public void update(int b) {
+    crc = (crc >>> 8) ^ T[0][(crc ^ b) & 0xFF];
+  }
+
+  private static int slice8(int c, int lo, int hi) {
+    int a = c ^ lo;
+    return T[7][a & 0xFF] ^ T[6][(a >>> 8) & 0xFF] ^ T[5][(a >>> 16) & 0xFF] ^ T[4][a >>> 24]
+        ^ T[3][hi & 0xFF] ^ T[2][(hi >>> 8) & 0xFF] ^ T[1][(hi >>> 16) & 0xFF] ^ T[0][hi >>> 24];
+  }
+
+  @Override public void update(byte[] b, int off, int len) {
+    int c = crc, p = off, end = off + len;
+    for (int limit = end - 8; p <= limit; p += 8) {
+      c = slice8(c, OzBits.getIntLE(b, p), OzBits.getIntLE(b, p + 4));
+    }
+    for (; p < end; p++) {
+      c = (c >>> 8) ^ T[0][(c ^ b[p]) & 0xFF];
+    }
+    crc = c;
+  }
+
+  public void update(byte[] b) {
+    update(b, 0, b.length);
+  }
+
+  /**
+   * Consumes all remaining bytes in <code>bb</code>, advancing its position to its limit.
+   *
+   * @param bb a heap or direct buffer.
+   */
+  public void update(ByteBuffer bb) {
+    if (bb.hasArray()) {
+      update(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+      bb.position(bb.limit());
+      return;
+    }
+    int c = crc, p = bb.position(), end = bb.limit();
+    for (int limit = end - 8; p <= limit; p += 8) {
+      c = slice8(c, OzXxHash.get32bits(bb, p), OzXxHash.get32bits(bb, p + 4));
+    }
+    for (; p < end; p++) {
+      c = (c >>> 8) ^ T[0][(c ^ bb.get(p)) & 0xFF];
+    }
+    bb.position(end);
+    crc = c;
+  }
+
+  @Override public long getValue() {
+    return ~crc & 0xFFFFFFFFL;
+  }
+
+  @Override public void reset() {
+    crc = 0xFFFFFFFF;
+  }
+}
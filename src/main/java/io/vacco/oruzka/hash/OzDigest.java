@@ -0,0 +1,151 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+
+/**
+ * Digest engine over a fixed set of algorithms. Each thread keeps one reusable digester
+ * per algorithm, so no <code>MessageDigest.getInstance</code> lookups happen after warm up.
+ *
+ * Files are read through a <code>FileChannel</code>, either into a per-thread direct buffer, or
+ * through read-only mapped windows once they exceed {@link #MAP_THRESHOLD} bytes. Channels
+ * opened by this class are always closed; caller supplied streams are left open.
+ *
+ * Checksums (CRC32C, XXH64) are returned as big-endian bytes, their canonical representation.
+ */
+public enum OzDigest {
+
+  MD5, SHA1, SHA256, CRC32C, XXH64;
+
+  public static final long MAP_THRESHOLD = 8 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  private static final ThreadLocal<ByteBuffer> directBuffer =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+  private static final ThreadLocal<byte[]> heapBuffer =
+      ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+  private interface Engine {
+    void update(byte[] b, int off, int len);
+    void update(ByteBuffer bb);
+    byte[] digest();
+    void reset();
+  }
+
+  private static class MdEngine implements Engine {
+    private final MessageDigest md;
+    MdEngine(String algorithm) { this.md = OFn.tryApply(algorithm, MessageDigest::getInstance); }
+    @Override public void update(byte[] b, int off, int len) { md.update(b, off, len); }
+    @Override public void update(ByteBuffer bb) { md.update(bb); }
+    @Override public byte[] digest() { return md.digest(); }
+    @Override public void reset() { md.reset(); }
+  }
+
+  private static class Crc32cEngine implements Engine {
+    private final OzCrc32c crc = new OzCrc32c();
+    @Override public void update(byte[] b, int off, int len) { crc.update(b, off, len); }
+    @Override public void update(ByteBuffer bb) { crc.update(bb); }
+    @Override public byte[] digest() { return ByteBuffer.allocate(4).putInt((int) crc.getValue()).array(); }
+    @Override public void reset() { crc.reset(); }
+  }
+
+  private static class Xxh64Engine implements Engine {
+    private final OzXxHasher64 h = new OzXxHasher64();
+    @Override public void update(byte[] b, int off, int len) { h.update(b, off, len); }
+    @Override public void update(ByteBuffer bb) { h.update(bb); }
+    @Override public byte[] digest() { return ByteBuffer.allocate(8).putLong(h.digest()).array(); }
+    @Override public void reset() { h.reset(); }
+  }
+
+  private final ThreadLocal<Engine> engine = ThreadLocal.withInitial(this::newEngine);
+
+  private Engine newEngine() {
+    switch (this) {
+      case MD5: return new MdEngine("MD5");
+      case SHA1: return new MdEngine("SHA-1");
+      case SHA256: return new MdEngine("SHA-256");
+      case CRC32C: return new Crc32cEngine();
+      default: return new Xxh64Engine();
+    }
+  }
+
+  private Engine reset() {
+    Engine e = engine.get();
+    e.reset();
+    return e;
+  }
+
+  public byte[] of(byte[] b, int off, int len) {
+    Engine e = reset();
+    e.update(b, off, len);
+    return e.digest();
+  }
+
+  public byte[] of(byte[] b) {
+    return of(b, 0, b.length);
+  }
+
+  /**
+   * @param bb a heap or direct buffer. Its remaining bytes are consumed.
+   * @return the digest of the remaining bytes in <code>bb</code>.
+   */
+  public byte[] of(ByteBuffer bb) {
+    Engine e = reset();
+    e.update(bb);
+    return e.digest();
+  }
+
+  /**
+   * @param is the stream to digest. Read until exhausted, but not closed.
+   * @return the digest of the stream's content.
+   */
+  public byte[] of(InputStream is) {
+    return OFn.tryApply(is, is0 -> {
+      Engine e = reset();
+      byte[] buf = heapBuffer.get();
+      for (int n; (n = is0.read(buf)) != -1; ) {
+        e.update(buf, 0, n);
+      }
+      return e.digest();
+    });
+  }
+
+  public byte[] of(Path file) {
+    return OFn.tryApply(file, f0 -> {
+      Engine e = reset();
+      try (FileChannel fc = FileChannel.open(f0, StandardOpenOption.READ)) {
+        long size = fc.size();
+        if (size > MAP_THRESHOLD) {
+          for (long pos = 0; pos < size; pos += OzXxHash.MAP_WINDOW) {
+            e.update(fc.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(OzXxHash.MAP_WINDOW, size - pos)));
+          }
+        } else {
+          ByteBuffer buf = directBuffer.get();
+          buf.clear();
+          while (fc.read(buf) != -1) {
+            buf.flip();
+            e.update(buf);
+            buf.clear();
+          }
+        }
+      }
+      return e.digest();
+    });
+  }
+
+  public byte[] of(File file) {
+    return of(file.toPath());
+  }
+
+  public String hexOf(byte[] b) { return OzArrays.bytesToHex(of(b)); }
+  public String hexOf(InputStream is) { return OzArrays.bytesToHex(of(is)); }
+  public String hexOf(Path file) { return OzArrays.bytesToHex(of(file)); }
+  public String hexOf(File file) { return OzArrays.bytesToHex(of(file)); }
+
+}
@@ -0,0 +1,30 @@
+package io.vacco.oruzka.hash;
+
+import java.util.Objects;
+
+/**
+ * An immutable 128-bit hash value, split into its low and high 64-bit halves.
+ */
+public final class OzHash128 {
+
+  public final long lo, hi;
+
+  public OzHash128(long lo, long hi) {
+    this.lo = lo;
+    this.hi = hi;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof OzHash128)) return false;
+    OzHash128 h = (OzHash128) o;
+    return lo == h.lo && hi == h.hi;
+  }
+
+  @Override public int hashCode() { return Objects.hash(lo, hi); }
+
+  /** @return the canonical (big-endian, high half first) hex representation. */
+  @Override public String toString() {
+    return String.format("%016x%016x", hi, lo);
+  }
+}
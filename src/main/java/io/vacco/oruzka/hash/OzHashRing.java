@@ -0,0 +1,102 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.OzCheck;
+
+import java.util.Arrays;
+
+/**
+ * Immutable consistent hash ring with virtual nodes. Each node is placed on the ring at
+ * <code>replicas</code> points, and a key belongs to the first point at or after its hash.
+ * Lookups are a binary search over a sorted <code>long[]</code> and do not allocate.
+ *
+ * {@link #with(long)} and {@link #without(long)} return new rings, so a ring can be shared
+ * between threads and swapped atomically when membership changes.
+ */
+public class OzHashRing {
+
+  public final int replicas;
+  public final long seed;
+
+  private final long[] nodes;
+  private final long[] points;
+  private final long[] owners;
+
+  private OzHashRing(int replicas, long seed, long[] nodes) {
+    this.replicas = replicas;
+    this.seed = seed;
+    this.nodes = nodes;
+    int n = nodes.length * replicas;
+    long[] pts = new long[n];
+    for (int i = 0, k = 0; i < nodes.length; i++) {
+      for (int r = 0; r < replicas; r++, k++) {
+        pts[k] = OzShards.score(r, nodes[i], seed);
+      }
+    }
+    Integer[] idx = new Integer[n];
+    for (int i = 0; i < n; i++) { idx[i] = i; }
+    Arrays.sort(idx, (a, b) -> {
+      int c = Long.compare(pts[a], pts[b]);
+      return c != 0 ? c : Long.compare(nodes[a / replicas], nodes[b / replicas]);
+    });
+    this.points = new long[n];
+    this.owners = new long[n];
+    for (int i = 0; i < n; i++) {
+      points[i] = pts[idx[i]];
+      owners[i] = nodes[idx[i] / replicas];
+    }
+  }
+
+  public static OzHashRing of(int replicas, long seed, long ... nodeIds) {
+    OzCheck.isTrue(replicas > 0, "hash.ring.invalid.replicas");
+    long[] nodes = Arrays.stream(nodeIds).distinct().sorted().toArray();
+    return new OzHashRing(replicas, seed, nodes);
+  }
+
+  public OzHashRing with(long nodeId) {
+    if (Arrays.binarySearch(nodes, nodeId) >= 0) {
+      return this;
+    }
+    long[] next = Arrays.copyOf(nodes, nodes.length + 1);
+    next[nodes.length] = nodeId;
+    Arrays.sort(next);
+    return new OzHashRing(replicas, seed, next);
+  }
+
+  public OzHashRing without(long nodeId) {
+    if (Arrays.binarySearch(nodes, nodeId) < 0) {
+      return this;
+    }
+    return new OzHashRing(replicas, seed, Arrays.stream(nodes).filter(n -> n != nodeId).toArray());
+  }
+
+  /**
+   * @param keyHash the key's hash.
+   * @return the id of the node owning the key.
+   */
+  public long route(long keyHash) {
+    OzCheck.isTrue(points.length > 0, "hash.ring.empty");
+    long h = OzXxHash.avalanche64(keyHash ^ seed);
+    int lo = 0, hi = points.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (points[mid] < h) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return owners[lo == points.length ? 0 : lo];
+  }
+
+  public long route(CharSequence key) {
+    return route(OzXxHash.hashCharsUtf8(key, 0));
+  }
+
+  public int size() {
+    return nodes.length;
+  }
+
+  public long[] nodes() {
+    return nodes.clone();
+  }
+}
@@ -0,0 +1,220 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.OzCheck;
+
+/**
+ * Fluent composite key hasher. Components are streamed into an XXH64 or XXH3/XXH128
+ * state through a small scratch buffer, so building a key does not allocate and
+ * never materializes the concatenated key bytes.
+ *
+ * Every component is written with a type tag, and variable length components
+ * (strings, byte arrays) with a length prefix, so the encoding is prefix-free:
+ * <code>("ab", "c")</code> and <code>("a", "bc")</code> hash differently, as do
+ * <code>(1)</code> and <code>(1L)</code>. Strings are encoded as UTF-16 code units.
+ *
+ * Instances are not thread safe, but may be {@link #reset()} and reused.
+ */
+public class OzKeyHasher {
+
+  private static final byte
+      T_NULL = 0, T_BOOL = 1, T_INT = 2, T_LONG = 3, T_DOUBLE = 4,
+      T_CHAR = 5, T_STRING = 6, T_BYTES = 7, T_ENUM = 8;
+
+  private final byte[] buf = new byte[64];
+  private final OzXxHasher64 h64;
+  private final OzXxHasher3 h3;
+  private int pos;
+
+  private OzKeyHasher(OzXxHasher64 h64, OzXxHasher3 h3) {
+    this.h64 = h64;
+    this.h3 = h3;
+  }
+
+  /**
+   * @param seed the hash seed.
+   * @return a key hasher producing XXH64 digests.
+   */
+  public static OzKeyHasher xx64(long seed) {
+    return new OzKeyHasher(new OzXxHasher64(seed), null);
+  }
+
+  /**
+   * @param seed the hash seed.
+   * @return a key hasher producing XXH128 digests (or XXH3 64-bit digests).
+   */
+  public static OzKeyHasher xx128(long seed) {
+    return new OzKeyHasher(null, new OzXxHasher3(seed));
+  }
+
+  public OzKeyHasher reset() {
+    pos = 0;
+    if (h64 != null) {
+      h64.reset();
+    } else {
+      h3.reset();
+    }
+    return this;
+  }
+
+  private void flush() {
+    if (h64 != null) {
+      h64.update(buf, 0, pos);
+    } else {
+      h3.update(buf, 0, pos);
+    }
+    pos = 0;
+  }
+
+  private void ensure(int n) {
+    if (pos + n > buf.length) {
+      flush();
+    }
+  }
+
+  private void write8(long v) {
+    for (int i = 0; i < 8; i++) {
+      buf[pos++] = (byte) (v >>> (i * 8));
+    }
+  }
+
+  private void write4(int v) {
+    for (int i = 0; i < 4; i++) {
+      buf[pos++] = (byte) (v >>> (i * 8));
+    }
+  }
+
+  public OzKeyHasher putBoolean(boolean v) {
+    ensure(2);
+    buf[pos++] = T_BOOL;
+    buf[pos++] = (byte) (v ? 1 : 0);
+    return this;
+  }
+
+  public OzKeyHasher putInt(int v) {
+    ensure(5);
+    buf[pos++] = T_INT;
+    write4(v);
+    return this;
+  }
+
+  public OzKeyHasher putLong(long v) {
+    ensure(9);
+    buf[pos++] = T_LONG;
+    write8(v);
+    return this;
+  }
+
+  public OzKeyHasher putDouble(double v) {
+    ensure(9);
+    buf[pos++] = T_DOUBLE;
+    write8(Double.doubleToLongBits(v));
+    return this;
+  }
+
+  public OzKeyHasher putChar(char c) {
+    ensure(3);
+    buf[pos++] = T_CHAR;
+    buf[pos++] = (byte) c;
+    buf[pos++] = (byte) (c >>> 8);
+    return this;
+  }
+
+  private void chars(CharSequence cs) {
+    ensure(4);
+    write4(cs.length());
+    for (int i = 0, n = cs.length(); i < n; i++) {
+      ensure(2);
+      char c = cs.charAt(i);
+      buf[pos++] = (byte) c;
+      buf[pos++] = (byte) (c >>> 8);
+    }
+  }
+
+  public OzKeyHasher putString(CharSequence cs) {
+    if (cs == null) {
+      return putNull();
+    }
+    ensure(1);
+    buf[pos++] = T_STRING;
+    chars(cs);
+    return this;
+  }
+
+  public OzKeyHasher putBytes(byte[] b, int off, int len) {
+    ensure(5);
+    buf[pos++] = T_BYTES;
+    write4(len);
+    if (len <= buf.length - pos) {
+      System.arraycopy(b, off, buf, pos, len);
+      pos += len;
+    } else {
+      flush();
+      if (h64 != null) {
+        h64.update(b, off, len);
+      } else {
+        h3.update(b, off, len);
+      }
+    }
+    return this;
+  }
+
+  public OzKeyHasher putBytes(byte[] b) {
+    return b == null ? putNull() : putBytes(b, 0, b.length);
+  }
+
+  /**
+   * Enum constants are keyed by declaring class and constant name, not by ordinal,
+   * so keys stay stable when constants get reordered.
+   *
+   * @param e the enum constant.
+   * @return this hasher.
+   */
+  public OzKeyHasher putEnum(Enum<?> e) {
+    if (e == null) {
+      return putNull();
+    }
+    ensure(1);
+    buf[pos++] = T_ENUM;
+    chars(e.getDeclaringClass().getName());
+    chars(e.name());
+    return this;
+  }
+
+  public OzKeyHasher putNull() {
+    ensure(1);
+    buf[pos++] = T_NULL;
+    return this;
+  }
+
+  /**
+   * Dispatches on the runtime type of <code>o</code>. Numbers, booleans, characters,
+   * character sequences, byte arrays and enums get a dedicated encoding. Other
+   * objects are keyed by their <code>toString()</code> value, which does allocate.
+   *
+   * @param o the key component. May be <code>null</code>.
+   * @return this hasher.
+   */
+  public OzKeyHasher put(Object o) {
+    if (o == null) { return putNull(); }
+    else if (o instanceof CharSequence) { return putString((CharSequence) o); }
+    else if (o instanceof Long) { return putLong((Long) o); }
+    else if (o instanceof Integer || o instanceof Short || o instanceof Byte) { return putInt(((Number) o).intValue()); }
+    else if (o instanceof Double || o instanceof Float) { return putDouble(((Number) o).doubleValue()); }
+    else if (o instanceof Boolean) { return putBoolean((Boolean) o); }
+    else if (o instanceof Character) { return putChar((Character) o); }
+    else if (o instanceof Enum<?>) { return putEnum((Enum<?>) o); }
+    else if (o instanceof byte[]) { return putBytes((byte[]) o); }
+    return putString(o.toString());
+  }
+
+  public long digest64() {
+    flush();
+    return h64 != null ? h64.digest() : h3.digest64();
+  }
+
+  public OzHash128 digest128() {
+    OzCheck.isTrue(h3 != null, "key.hasher.not.128.bit");
+    flush();
+    return h3.digest128();
+  }
+}
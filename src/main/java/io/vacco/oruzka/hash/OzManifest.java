@@ -0,0 +1,199 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checksum manifest of a directory tree: one (path, size, mtime, digest) entry per regular file,
+ * keyed by its root relative path (using <code>'/'</code> separators).
+ *
+ * When built against a previous manifest, files whose size and modification time did not change
+ * keep their previous digest and are not read again. The remaining files are hashed concurrently,
+ * with at most a bounded number of pending tasks submitted to the caller's executor at any time.
+ *
+ * Manifests persist to a compact binary cache file, which is replaced atomically on write.
+ */
+public class OzManifest {
+
+  private static final int MAGIC = 0x4F5A4D46; // OZMF
+  private static final int VERSION = 1;
+
+  public static class Entry {
+
+    public final String path;
+    public final long size, mtime;
+    public final byte[] digest;
+
+    public Entry(String path, long size, long mtime, byte[] digest) {
+      this.path = path;
+      this.size = size;
+      this.mtime = mtime;
+      this.digest = digest;
+    }
+
+    public boolean sameFile(long size, long mtime) {
+      return this.size == size && this.mtime == mtime;
+    }
+
+    @Override public String toString() {
+      return String.format("%s %d %d %s", path, size, mtime, OzArrays.bytesToHex(digest));
+    }
+  }
+
+  public final OzDigest digest;
+  public final SortedMap<String, Entry> entries;
+  public final int hashed, reused;
+
+  public OzManifest(OzDigest digest, SortedMap<String, Entry> entries, int hashed, int reused) {
+    this.digest = digest;
+    this.entries = entries;
+    this.hashed = hashed;
+    this.reused = reused;
+  }
+
+  private static String keyOf(Path root, Path file) {
+    String key = root.relativize(file).toString();
+    return File.separatorChar == '/' ? key : key.replace(File.separatorChar, '/');
+  }
+
+  /**
+   * @param root the directory to walk.
+   * @param digest the digest algorithm.
+   * @param previous a previous manifest of the same tree, or <code>null</code> to hash every file.
+   *                 Ignored if it was built with a different digest algorithm.
+   * @param exec the executor to hash files on.
+   * @param maxPending the maximum number of hash tasks queued on <code>exec</code> at any time.
+   * @return the new manifest.
+   */
+  public static OzManifest of(Path root, OzDigest digest, OzManifest previous, ExecutorService exec, int maxPending) {
+    Map<String, Entry> prev = previous != null && previous.digest == digest
+        ? previous.entries : Collections.emptyMap();
+    ConcurrentSkipListMap<String, Entry> out = new ConcurrentSkipListMap<>();
+    AtomicReference<Exception> error = new AtomicReference<>();
+    Semaphore pending = new Semaphore(maxPending);
+    int[] counts = new int[2];
+
+    OFnBlock.tryRun(() -> {
+      Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (!attrs.isRegularFile()) {
+            return FileVisitResult.CONTINUE;
+          }
+          String key = keyOf(root, file);
+          long size = attrs.size(), mtime = attrs.lastModifiedTime().toMillis();
+          Entry e0 = prev.get(key);
+          if (e0 != null && e0.sameFile(size, mtime)) {
+            out.put(key, e0);
+            counts[1]++;
+            return FileVisitResult.CONTINUE;
+          }
+          pending.acquireUninterruptibly();
+          counts[0]++;
+          try {
+            exec.execute(() -> {
+              try {
+                out.put(key, new Entry(key, size, mtime, digest.of(file)));
+              } catch (Exception x) {
+                error.compareAndSet(null, x);
+              } finally {
+                pending.release();
+              }
+            });
+          } catch (RejectedExecutionException x) {
+            pending.release();
+            throw x;
+          }
+          return error.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+        }
+      });
+      pending.acquire(maxPending);
+      pending.release(maxPending);
+    });
+    if (error.get() != null) {
+      throw new IllegalStateException(error.get());
+    }
+    return new OzManifest(digest, out, counts[0], counts[1]);
+  }
+
+  /**
+   * Builds a manifest using a persistent cache file. The cache is read if it exists,
+   * and replaced with the new manifest afterwards.
+   *
+   * @param root the directory to walk.
+   * @param digest the digest algorithm.
+   * @param cache the cache file. Should live outside of <code>root</code>.
+   * @param threads the number of hashing threads.
+   * @return the new manifest.
+   */
+  public static OzManifest of(Path root, OzDigest digest, Path cache, int threads) {
+    OzManifest previous = Files.exists(cache) ? read(cache) : null;
+    ExecutorService exec = Executors.newFixedThreadPool(threads);
+    try {
+      OzManifest m = of(root, digest, previous, exec, threads * 4);
+      m.write(cache);
+      return m;
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  /**
+   * @param other another manifest, possibly of a different tree.
+   * @return the paths which are new, or have different digests in this manifest.
+   */
+  public List<String> changed(OzManifest other) {
+    List<String> out = new ArrayList<>();
+    for (Entry e : entries.values()) {
+      Entry e0 = other.entries.get(e.path);
+      if (e0 == null || !Arrays.equals(e.digest, e0.digest)) {
+        out.add(e.path);
+      }
+    }
+    return out;
+  }
+
+  public void write(Path file) {
+    OFnBlock.tryRun(() -> {
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(digest.name());
+        out.writeInt(entries.size());
+        for (Entry e : entries.values()) {
+          out.writeUTF(e.path);
+          out.writeLong(e.size);
+          out.writeLong(e.mtime);
+          out.writeByte(e.digest.length);
+          out.write(e.digest);
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    });
+  }
+
+  public static OzManifest read(Path file) {
+    return OFn.tryApply(file, f0 -> {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(f0)))) {
+        OzCheck.isTrue(in.readInt() == MAGIC && in.readInt() == VERSION, "manifest.invalid.cache.file");
+        OzDigest digest = OzDigest.valueOf(in.readUTF());
+        SortedMap<String, Entry> entries = new TreeMap<>();
+        for (int i = 0, n = in.readInt(); i < n; i++) {
+          String path = in.readUTF();
+          long size = in.readLong(), mtime = in.readLong();
+          byte[] d = new byte[in.readUnsignedByte()];
+          in.readFully(d);
+          entries.put(path, new Entry(path, size, mtime, d));
+        }
+        return new OzManifest(digest, entries, 0, 0);
+      }
+    });
+  }
+
+}
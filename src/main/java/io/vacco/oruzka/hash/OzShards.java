@@ -0,0 +1,67 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.OzCheck;
+
+/**
+ * Key to shard routing which, unlike modulo over a hash, only moves about <code>1/n</code>
+ * of the keys when a shard is added or removed. Keys are routed by their 64-bit hash
+ * (for example, from {@link OzXxHash}).
+ *
+ * Jump consistent hashing needs no state but only supports adding or removing the last
+ * bucket. Rendezvous hashing supports arbitrary node sets in <code>O(n)</code> per lookup.
+ * For large node sets, see {@link OzHashRing}.
+ */
+public class OzShards {
+
+  /**
+   * Lamping and Veach's jump consistent hash.
+   *
+   * @param keyHash the key's hash.
+   * @param buckets the number of buckets.
+   * @return a bucket in <code>[0, buckets)</code>.
+   */
+  public static int jump(long keyHash, int buckets) {
+    OzCheck.isTrue(buckets > 0, "shards.invalid.bucket.count");
+    long b = -1, j = 0;
+    while (j < buckets) {
+      b = j;
+      keyHash = keyHash * 2862933555777941757L + 1;
+      j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((keyHash >>> 33) + 1)));
+    }
+    return (int) b;
+  }
+
+  public static int jump(CharSequence key, int buckets) {
+    return jump(OzXxHash.hashCharsUtf8(key, 0), buckets);
+  }
+
+  public static long score(long keyHash, long nodeId, long seed) {
+    return OzXxHash.avalanche64(OzXxHash.mergeRound64(OzXxHash.mergeRound64(seed, nodeId), keyHash));
+  }
+
+  /**
+   * Rendezvous (highest random weight) hashing.
+   *
+   * @param keyHash the key's hash.
+   * @param nodeIds the candidate node ids.
+   * @param seed the scoring seed.
+   * @return the index of the node with the highest score for this key.
+   */
+  public static int rendezvous(long keyHash, long[] nodeIds, long seed) {
+    OzCheck.isTrue(nodeIds.length > 0, "shards.no.nodes");
+    int best = 0;
+    long bestScore = Long.MIN_VALUE;
+    for (int i = 0; i < nodeIds.length; i++) {
+      long s = score(keyHash, nodeIds[i], seed);
+      if (s > bestScore || (s == bestScore && nodeIds[i] < nodeIds[best])) {
+        best = i;
+        bestScore = s;
+      }
+    }
+    return best;
+  }
+
+  public static int rendezvous(long keyHash, long[] nodeIds) {
+    return rendezvous(keyHash, nodeIds, 0);
+  }
+}
@@ -0,0 +1,176 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.*;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Chunked tree hash of a file, which doubles as a chunk manifest.
+ *
+ * The file is split into fixed size chunks, and each chunk is hashed with XXH64. Chunks are
+ * read through read-only memory mapped windows of up to {@link OzXxHash#MAP_WINDOW} bytes (or
+ * one chunk, if larger), which are hashed in parallel on a {@link ForkJoinPool}. The root
+ * digest is the XXH64 of the chunk size, the file size and every chunk hash, in order.
+ *
+ * Comparing two manifests of the same chunk size (or verifying a manifest against a file)
+ * yields the indices of the chunks which changed, so only those need to be re-synced.
+ */
+public class OzTreeHash {
+
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  public final int chunkSize;
+  public final long size;
+  public final long[] chunks;
+  public final long root;
+
+  public OzTreeHash(int chunkSize, long size, long[] chunks) {
+    OzCheck.isTrue(chunks.length == chunkCount(size, chunkSize), "tree.hash.invalid.chunk.count");
+    this.chunkSize = chunkSize;
+    this.size = size;
+    this.chunks = chunks;
+    this.root = rootOf(chunkSize, size, chunks);
+  }
+
+  public static int chunkCount(long size, int chunkSize) {
+    OzCheck.isTrue(chunkSize > 0, "tree.hash.invalid.chunk.size");
+    OzCheck.isTrue(size >= 0, "tree.hash.invalid.size");
+    long n = (size + chunkSize - 1) / chunkSize;
+    OzCheck.isTrue(n <= Integer.MAX_VALUE, "tree.hash.too.many.chunks");
+    return (int) n;
+  }
+
+  private static long rootOf(int chunkSize, long size, long[] chunks) {
+    byte[] b = new byte[8];
+    OzXxHasher64 h = new OzXxHasher64();
+    h.update(le64(b, chunkSize)).update(le64(b, size));
+    for (long c : chunks) {
+      h.update(le64(b, c));
+    }
+    return h.digest();
+  }
+
+  private static byte[] le64(byte[] b, long v) {
+    for (int i = 0; i < 8; i++) {
+      b[i] = (byte) (v >>> (i * 8));
+    }
+    return b;
+  }
+
+  private static class ChunkTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel fc;
+    private final long size;
+    private final int chunkSize, from, to;
+    private final long[] out;
+
+    ChunkTask(FileChannel fc, long size, int chunkSize, int from, int to, long[] out) {
+      this.fc = fc;
+      this.size = size;
+      this.chunkSize = chunkSize;
+      this.from = from;
+      this.to = to;
+      this.out = out;
+    }
+
+    @Override protected void compute() {
+      if (to - from <= Math.max(1, OzXxHash.MAP_WINDOW / chunkSize)) {
+        long start = (long) from * chunkSize, end = Math.min((long) to * chunkSize, size);
+        MappedByteBuffer w = OFn.tryApply(start, p0 -> fc.map(FileChannel.MapMode.READ_ONLY, p0, end - p0));
+        for (int i = from; i < to; i++) {
+          int p = (i - from) * chunkSize;
+          w.limit((int) Math.min(p + (long) chunkSize, end - start)).position(p);
+          out[i] = OzXxHash.hash64(w, 0);
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(
+            new ChunkTask(fc, size, chunkSize, from, mid, out),
+            new ChunkTask(fc, size, chunkSize, mid, to, out)
+        );
+      }
+    }
+  }
+
+  public static OzTreeHash of(Path file, int chunkSize, ForkJoinPool pool) {
+    return OFn.tryApply(file, f0 -> {
+      try (FileChannel fc = FileChannel.open(f0, StandardOpenOption.READ)) {
+        long size = fc.size();
+        long[] chunks = new long[chunkCount(size, chunkSize)];
+        pool.invoke(new ChunkTask(fc, size, chunkSize, 0, chunks.length, chunks));
+        return new OzTreeHash(chunkSize, size, chunks);
+      }
+    });
+  }
+
+  public static OzTreeHash of(Path file) {
+    return of(file, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param other a manifest with the same chunk size.
+   * @return the indices of the chunks which differ between both manifests, or which only
+   *         one of them has (e.g. after the file was truncated or extended).
+   */
+  public int[] changedChunks(OzTreeHash other) {
+    OzCheck.isTrue(chunkSize == other.chunkSize, "tree.hash.chunk.size.mismatch");
+    int count = Math.max(chunks.length, other.chunks.length);
+    int[] changed = new int[count];
+    int n = 0;
+    for (int i = 0; i < count; i++) {
+      if (i >= chunks.length || i >= other.chunks.length || chunks[i] != other.chunks[i]) {
+        changed[n++] = i;
+      }
+    }
+    return Arrays.copyOf(changed, n);
+  }
+
+  /**
+   * Re-hashes a file with this manifest's chunk size.
+   *
+   * @param file the file to check.
+   * @param pool the pool to hash chunks on.
+   * @return the indices of the chunks which differ between <code>file</code> and this
+   *         manifest, including chunks missing from either one.
+   */
+  public int[] verify(Path file, ForkJoinPool pool) {
+    return of(file, chunkSize, pool).changedChunks(this);
+  }
+
+  public void write(DataOutput out) {
+    OFnBlock.tryRun(() -> {
+      out.writeInt(chunkSize);
+      out.writeLong(size);
+      for (long c : chunks) {
+        out.writeLong(c);
+      }
+      out.writeLong(root);
+    });
+  }
+
+  public static OzTreeHash read(DataInput in) {
+    return OFnSupplier.tryGet(() -> {
+      int chunkSize = in.readInt();
+      long size = in.readLong();
+      long[] chunks = new long[chunkCount(size, chunkSize)];
+      for (int i = 0; i < chunks.length; i++) {
+        chunks[i] = in.readLong();
+      }
+      OzTreeHash th = new OzTreeHash(chunkSize, size, chunks);
+      OzCheck.isTrue(th.root == in.readLong(), "tree.hash.corrupt.manifest");
+      return th;
+    });
+  }
+
+  @Override public String toString() {
+    return String.format("%s[size: %d, chunkSize: %d, chunks: %d, root: %016x]",
+        getClass().getSimpleName(), size, chunkSize, chunks.length, root);
+  }
+}
@@ -1,7 +1,17 @@
 package io.vacco.oruzka.hash;
 
+import io.vacco.oruzka.core.*;
+
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
 public class OzXxHash {
 
+  public static final int MAP_WINDOW = 1 << 26;
+
+  private static final ThreadLocal<OzXxHasher64> charHasher = ThreadLocal.withInitial(OzXxHasher64::new);
+
   public static final int PRIME32_1 = 0x9E3779B1;
   public static final int PRIME32_2 = 0x85EBCA77;
   public static final int PRIME32_3 = 0xC2B2AE3D;
@@ -25,23 +35,11 @@ public class OzXxHash {
       int v3 = seed;
       int v4 = seed - PRIME32_1;
 
-      for (int limit = end - 16; p <= limit; ) {
-        v1 += get32bits(b, p) * PRIME32_2;
-        v1 = rotl32(v1, 13);
-        v1 *= PRIME32_1;
-        p += 4;
-        v2 += get32bits(b, p) * PRIME32_2;
-        v2 = rotl32(v2, 13);
-        v2 *= PRIME32_1;
-        p += 4;
-        v3 += get32bits(b, p) * PRIME32_2;
-        v3 = rotl32(v3, 13);
-        v3 *= PRIME32_1;
-        p += 4;
-        v4 += get32bits(b, p) * PRIME32_2;
-        v4 = rotl32(v4, 13);
-        v4 *= PRIME32_1;
-        p += 4;
+      for (int limit = end - 16; p <= limit; p += 16) {
+        v1 = round32(v1, get32bits(b, p));
+        v2 = round32(v2, get32bits(b, p + 4));
+        v3 = round32(v3, get32bits(b, p + 8));
+        v4 = round32(v4, get32bits(b, p + 12));
       }
 
       h32 = rotl32(v1, 1) + rotl32(v2, 7) + rotl32(v3, 12)
@@ -51,7 +49,16 @@ public class OzXxHash {
     }
 
     h32 += len;
+    return finalize32(h32, b, p, end);
+  }
+
+  public static int round32(int acc, int input) {
+    acc += input * PRIME32_2;
+    acc = rotl32(acc, 13);
+    return acc * PRIME32_1;
+  }
 
+  public static int finalize32(int h32, byte[] b, int p, int end) {
     while (p + 4 <= end) {
       h32 += get32bits(b, p) * PRIME32_3;
       h32 = rotl32(h32, 17) * PRIME32_4;
@@ -64,12 +71,15 @@ public class OzXxHash {
       p += 1;
     }
 
+    return avalanche32(h32);
+  }
+
+  public static int avalanche32(int h32) {
     h32 ^= h32 >>> 15;
     h32 *= PRIME32_2;
     h32 ^= h32 >>> 13;
     h32 *= PRIME32_3;
     h32 ^= h32 >>> 16;
-
     return h32;
   }
 
@@ -78,10 +88,61 @@ public class OzXxHash {
   }
 
   public static int get32bits(byte[] b, int off) {
-    return (((int) b[off + 3] & 0xFF) << 24)
-        | (((int) b[off + 2] & 0xFF) << 16)
-        | (((int) b[off + 1] & 0xFF) << 8)
-        | ((int) b[off] & 0xFF);
+    return OzBits.getIntLE(b, off);
+  }
+
+  public static int get32bits(ByteBuffer bb, int off) {
+    return OzBits.getIntLE(bb, off);
+  }
+
+  /**
+   * Hashes the bytes between the buffer's position and limit, without modifying either.
+   *
+   * @param bb a heap or direct buffer.
+   * @param seed the hash seed.
+   * @return the XXH32 value of the remaining bytes.
+   */
+  public static int hash32(ByteBuffer bb, int seed) {
+    if (bb.hasArray()) {
+      return hash32(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining(), seed);
+    }
+    int h32;
+    int p = bb.position(), end = bb.limit();
+
+    if (end - p >= 16) {
+      int v1 = seed + PRIME32_1 + PRIME32_2;
+      int v2 = seed + PRIME32_2;
+      int v3 = seed;
+      int v4 = seed - PRIME32_1;
+
+      for (int limit = end - 16; p <= limit; p += 16) {
+        v1 = round32(v1, get32bits(bb, p));
+        v2 = round32(v2, get32bits(bb, p + 4));
+        v3 = round32(v3, get32bits(bb, p + 8));
+        v4 = round32(v4, get32bits(bb, p + 12));
+      }
+
+      h32 = rotl32(v1, 1) + rotl32(v2, 7) + rotl32(v3, 12)
+          + rotl32(v4, 18);
+    } else {
+      h32 = seed + PRIME32_5;
+    }
+
+    h32 += bb.remaining();
+
+    while (p + 4 <= end) {
+      h32 += get32bits(bb, p) * PRIME32_3;
+      h32 = rotl32(h32, 17) * PRIME32_4;
+      p += 4;
+    }
+
+    while (p < end) {
+      h32 += ((int) bb.get(p) & 0xFF) * PRIME32_5;
+      h32 = rotl32(h32, 11) * PRIME32_1;
+      p += 1;
+    }
+
+    return avalanche32(h32);
   }
 
   public static long hash64(byte[] b, int off, int len, long seed) {
@@ -94,63 +155,41 @@ public class OzXxHash {
       long v3 = seed;
       long v4 = seed - PRIME64_1;
 
-      for (int limit = end - 32; p <= limit; ) {
-        v1 += get64bits(b, p) * PRIME64_2;
-        v1 = rotl64(v1, 31);
-        v1 *= PRIME64_1;
-        p += 8;
-        v2 += get64bits(b, p) * PRIME64_2;
-        v2 = rotl64(v2, 31);
-        v2 *= PRIME64_1;
-        p += 8;
-        v3 += get64bits(b, p) * PRIME64_2;
-        v3 = rotl64(v3, 31);
-        v3 *= PRIME64_1;
-        p += 8;
-        v4 += get64bits(b, p) * PRIME64_2;
-        v4 = rotl64(v4, 31);
-        v4 *= PRIME64_1;
-        p += 8;
+      for (int limit = end - 32; p <= limit; p += 32) {
+        v1 = round64(v1, get64bits(b, p));
+        v2 = round64(v2, get64bits(b, p + 8));
+        v3 = round64(v3, get64bits(b, p + 16));
+        v4 = round64(v4, get64bits(b, p + 24));
       }
 
       h64 = rotl64(v1, 1) + rotl64(v2, 7) + rotl64(v3, 12)
           + rotl64(v4, 18);
-
-      v1 *= PRIME64_2;
-      v1 = rotl64(v1, 31);
-      v1 *= PRIME64_1;
-      h64 ^= v1;
-      h64 = h64 * PRIME64_1 + PRIME64_4;
-
-      v2 *= PRIME64_2;
-      v2 = rotl64(v2, 31);
-      v2 *= PRIME64_1;
-      h64 ^= v2;
-      h64 = h64 * PRIME64_1 + PRIME64_4;
-
-      v3 *= PRIME64_2;
-      v3 = rotl64(v3, 31);
-      v3 *= PRIME64_1;
-      h64 ^= v3;
-      h64 = h64 * PRIME64_1 + PRIME64_4;
-
-      v4 *= PRIME64_2;
-      v4 = rotl64(v4, 31);
-      v4 *= PRIME64_1;
-      h64 ^= v4;
-      h64 = h64 * PRIME64_1 + PRIME64_4;
+      h64 = mergeRound64(h64, v1);
+      h64 = mergeRound64(h64, v2);
+      h64 = mergeRound64(h64, v3);
+      h64 = mergeRound64(h64, v4);
     } else {
       h64 = seed + PRIME64_5;
     }
 
     h64 += len;
+    return finalize64(h64, b, p, end);
+  }
+
+  public static long round64(long acc, long input) {
+    acc += input * PRIME64_2;
+    acc = rotl64(acc, 31);
+    return acc * PRIME64_1;
+  }
+
+  public static long mergeRound64(long h64, long v) {
+    h64 ^= round64(0, v);
+    return h64 * PRIME64_1 + PRIME64_4;
+  }
 
+  public static long finalize64(long h64, byte[] b, int p, int end) {
     while (p + 8 <= end) {
-      long k1 = get64bits(b, p);
-      k1 *= PRIME64_2;
-      k1 = rotl64(k1, 31);
-      k1 *= PRIME64_1;
-      h64 ^= k1;
+      h64 ^= round64(0, get64bits(b, p));
       h64 = rotl64(h64, 27) * PRIME64_1 + PRIME64_4;
       p += 8;
     }
@@ -167,27 +206,134 @@ public class OzXxHash {
       p += 1;
     }
 
+    return avalanche64(h64);
+  }
+
+  public static long avalanche64(long h64) {
     h64 ^= h64 >>> 33;
     h64 *= PRIME64_2;
     h64 ^= h64 >>> 29;
     h64 *= PRIME64_3;
     h64 ^= h64 >>> 32;
-
     return h64;
   }
 
+  /**
+   * Hashes the bytes between the buffer's position and limit, without modifying either.
+   *
+   * @param bb a heap or direct buffer.
+   * @param seed the hash seed.
+   * @return the XXH64 value of the remaining bytes.
+   */
+  public static long hash64(ByteBuffer bb, long seed) {
+    if (bb.hasArray()) {
+      return hash64(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining(), seed);
+    }
+    long h64;
+    int p = bb.position(), end = bb.limit();
+
+    if (end - p >= 32) {
+      long v1 = seed + PRIME64_1 + PRIME64_2;
+      long v2 = seed + PRIME64_2;
+      long v3 = seed;
+      long v4 = seed - PRIME64_1;
+
+      for (int limit = end - 32; p <= limit; p += 32) {
+        v1 = round64(v1, get64bits(bb, p));
+        v2 = round64(v2, get64bits(bb, p + 8));
+        v3 = round64(v3, get64bits(bb, p + 16));
+        v4 = round64(v4, get64bits(bb, p + 24));
+      }
+
+      h64 = rotl64(v1, 1) + rotl64(v2, 7) + rotl64(v3, 12)
+          + rotl64(v4, 18);
+      h64 = mergeRound64(h64, v1);
+      h64 = mergeRound64(h64, v2);
+      h64 = mergeRound64(h64, v3);
+      h64 = mergeRound64(h64, v4);
+    } else {
+      h64 = seed + PRIME64_5;
+    }
+
+    h64 += bb.remaining();
+
+    while (p + 8 <= end) {
+      h64 ^= round64(0, get64bits(bb, p));
+      h64 = rotl64(h64, 27) * PRIME64_1 + PRIME64_4;
+      p += 8;
+    }
+
+    if (p + 4 <= end) {
+      h64 ^= ((long) get32bits(bb, p) & 0xFFFFFFFFL) * PRIME64_1;
+      h64 = rotl64(h64, 23) * PRIME64_2 + PRIME64_3;
+      p += 4;
+    }
+
+    while (p < end) {
+      h64 ^= ((long) bb.get(p) & 0xFFL) * PRIME64_5;
+      h64 = rotl64(h64, 11) * PRIME64_1;
+      p += 1;
+    }
+
+    return avalanche64(h64);
+  }
+
+  /**
+   * Hashes a file through read-only memory mapped windows of {@link #MAP_WINDOW} bytes,
+   * so file contents never get copied into the Java heap.
+   *
+   * @param file the file to hash.
+   * @param seed the hash seed.
+   * @return the XXH64 value of the file's contents.
+   */
+  public static long hashFile(Path file, long seed) {
+    return OFn.tryApply(file, f0 -> {
+      OzXxHasher64 h = new OzXxHasher64(seed);
+      try (FileChannel fc = FileChannel.open(f0, StandardOpenOption.READ)) {
+        long size = fc.size();
+        for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+          h.update(fc.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos)));
+        }
+      }
+      return h.digest();
+    });
+  }
+
+  public static long hashFile(Path file) {
+    return hashFile(file, 0);
+  }
+
+  /**
+   * Hashes the UTF-16 code units of a character sequence, without allocating.
+   *
+   * @param cs the characters to hash.
+   * @param seed the hash seed.
+   * @return the XXH64 value of the little-endian code units of <code>cs</code>.
+   */
+  public static long hashChars(CharSequence cs, long seed) {
+    return charHasher.get().reset(seed).updateUtf16(cs).digest();
+  }
+
+  /**
+   * Hashes the UTF-8 encoding of a character sequence, without allocating.
+   *
+   * @param cs the characters to hash.
+   * @param seed the hash seed.
+   * @return the XXH64 value of <code>cs</code> encoded as <code>UTF_8</code>.
+   */
+  public static long hashCharsUtf8(CharSequence cs, long seed) {
+    return charHasher.get().reset(seed).updateUtf8(cs).digest();
+  }
+
   public static long rotl64(long v, int r) {
     return (v << r) | (v >>> (64 - r));
   }
 
   public static long get64bits(byte[] b, int off) {
-    return (((long) b[off + 7] & 0xFF) << 56)
-        | (((long) b[off + 6] & 0xFF) << 48)
-        | (((long) b[off + 5] & 0xFF) << 40)
-        | (((long) b[off + 4] & 0xFF) << 32)
-        | (((long) b[off + 3] & 0xFF) << 24)
-        | (((long) b[off + 2] & 0xFF) << 16)
-        | (((long) b[off + 1] & 0xFF) << 8)
-        | ((long) b[off] & 0xFF);
+    return OzBits.getLongLE(b, off);
+  }
+
+  public static long get64bits(ByteBuffer bb, int off) {
+    return OzBits.getLongLE(bb, off);
   }
 }
@@ -0,0 +1,367 @@
+package io.vacco.oruzka.hash;
+
+import io.vacco.oruzka.core.OzBits;
+
+import static io.vacco.oruzka.hash.OzXxHash.*;
+
+/**
+ * XXH3 (64-bit) and XXH128, as specified by xxHash 0.8. Results are
+ * compatible with the reference <code>XXH3_64bits_withSeed</code> and
+ * <code>XXH3_128bits_withSeed</code> functions.
+ */
+public class OzXxHash3 {
+
+  public static final long PRIME_MX1 = 0x165667919E3779F9L;
+  public static final long PRIME_MX2 = 0x9FB21C651E98DF25L;
+
+  public static final int STRIPE_LEN = 64;
+  public static final int SECRET_SIZE = 192;
+  public static final int SECRET_CONSUME_RATE = 8;
+  public static final int SECRET_MERGEACCS_START = 11;
+  public static final int SECRET_LASTACC_START = 7;
+  public static final int MIDSIZE_MAX = 240;
+  public static final int STRIPES_PER_BLOCK = (SECRET_SIZE - STRIPE_LEN) / SECRET_CONSUME_RATE;
+  public static final int BLOCK_LEN = STRIPE_LEN * STRIPES_PER_BLOCK;
+
+  private static final int MIDSIZE_STARTOFFSET = 3;
+  private static final int MIDSIZE_LASTOFFSET = 17;
+  private static final int SECRET_SIZE_MIN = 136;
+
+  public static final byte[] SECRET = {
+      (byte) 0xb8, (byte) 0xfe, (byte) 0x6c, (byte) 0x39, (byte) 0x23, (byte) 0xa4, (byte) 0x4b, (byte) 0xbe,
+      (byte) 0x7c, (byte) 0x01, (byte) 0x81, (byte) 0x2c, (byte) 0xf7, (byte) 0x21, (byte) 0xad, (byte) 0x1c,
+      (byte) 0xde, (byte) 0xd4, (byte) 0x6d, (byte) 0xe9, (byte) 0x83, (byte) 0x90, (byte) 0x97, (byte) 0xdb,
+      (byte) 0x72, (byte) 0x40, (byte) 0xa4, (byte) 0xa4, (byte) 0xb7, (byte) 0xb3, (byte) 0x67, (byte) 0x1f,
+      (byte) 0xcb, (byte) 0x79, (byte) 0xe6, (byte) 0x4e, (byte) 0xcc, (byte) 0xc0, (byte) 0xe5, (byte) 0x78,
+      (byte) 0x82, (byte) 0x5a, (byte) 0xd0, (byte) 0x7d, (byte) 0xcc, (byte) 0xff, (byte) 0x72, (byte) 0x21,
+      (byte) 0xb8, (byte) 0x08, (byte) 0x46, (byte) 0x74, (byte) 0xf7, (byte) 0x43, (byte) 0x24, (byte) 0x8e,
+      (byte) 0xe0, (byte) 0x35, (byte) 0x90, (byte) 0xe6, (byte) 0x81, (byte) 0x3a, (byte) 0x26, (byte) 0x4c,
+      (byte) 0x3c, (byte) 0x28, (byte) 0x52, (byte) 0xbb, (byte) 0x91, (byte) 0xc3, (byte) 0x00, (byte) 0xcb,
+      (byte) 0x88, (byte) 0xd0, (byte) 0x65, (byte) 0x8b, (byte) 0x1b, (byte) 0x53, (byte) 0x2e, (byte) 0xa3,
+      (byte) 0x71, (byte) 0x64, (byte) 0x48, (byte) 0x97, (byte) 0xa2, (byte) 0x0d, (byte) 0xf9, (byte) 0x4e,
+      (byte) 0x38, (byte) 0x19, (byte) 0xef, (byte) 0x46, (byte) 0xa9, (byte) 0xde, (byte) 0xac, (byte) 0xd8,
+      (byte) 0xa8, (byte) 0xfa, (byte) 0x76, (byte) 0x3f, (byte) 0xe3, (byte) 0x9c, (byte) 0x34, (byte) 0x3f,
+      (byte) 0xf9, (byte) 0xdc, (byte) 0xbb, (byte) 0xc7, (byte) 0xc7, (byte) 0x0b, (byte) 0x4f, (byte) 0x1d,
+      (byte) 0x8a, (byte) 0x51, (byte) 0xe0, (byte) 0x4b, (byte) 0xcd, (byte) 0xb4, (byte) 0x59, (byte) 0x31,
+      (byte) 0xc8, (byte) 0x9f, (byte) 0x7e, (byte) 0xc9, (byte) 0xd9, (byte) 0x78, (byte) 0x73, (byte) 0x64,
+      (byte) 0xea, (byte) 0xc5, (byte) 0xac, (byte) 0x83, (byte) 0x34, (byte) 0xd3, (byte) 0xeb, (byte) 0xc3,
+      (byte) 0xc5, (byte) 0x81, (byte) 0xa0, (byte) 0xff, (byte) 0xfa, (byte) 0x13, (byte) 0x63, (byte) 0xeb,
+      (byte) 0x17, (byte) 0x0d, (byte) 0xdd, (byte) 0x51, (byte) 0xb7, (byte) 0xf0, (byte) 0xda, (byte) 0x49,
+      (byte) 0xd3, (byte) 0x16, (byte) 0x55, (byte) 0x26, (byte) 0x29, (byte) 0xd4, (byte) 0x68, (byte) 0x9e,
+      (byte) 0x2b, (byte) 0x16, (byte) 0xbe, (byte) 0x58, (byte) 0x7d, (byte) 0x47, (byte) 0xa1, (byte) 0xfc,
+      (byte) 0x8f, (byte) 0xf8, (byte) 0xb8, (byte) 0xd1, (byte) 0x7a, (byte) 0xd0, (byte) 0x31, (byte) 0xce,
+      (byte) 0x45, (byte) 0xcb, (byte) 0x3a, (byte) 0x8f, (byte) 0x95, (byte) 0x16, (byte) 0x04, (byte) 0x28,
+      (byte) 0xaf, (byte) 0xd7, (byte) 0xfb, (byte) 0xca, (byte) 0xbb, (byte) 0x4b, (byte) 0x40, (byte) 0x7e
+  };
+
+  public static long[] initAcc(long[] acc) {
+    acc[0] = PRIME32_3 & 0xFFFFFFFFL;
+    acc[1] = PRIME64_1;
+    acc[2] = PRIME64_2;
+    acc[3] = PRIME64_3;
+    acc[4] = PRIME64_4;
+    acc[5] = PRIME32_2 & 0xFFFFFFFFL;
+    acc[6] = PRIME64_5;
+    acc[7] = PRIME32_1 & 0xFFFFFFFFL;
+    return acc;
+  }
+
+  /**
+   * Derives a custom secret from the default secret and a seed. Only needed for inputs
+   * longer than {@link #MIDSIZE_MAX} bytes, shorter inputs mix the seed in directly.
+   *
+   * @param seed the hash seed.
+   * @param out the output secret, at least {@link #SECRET_SIZE} bytes long.
+   * @return <code>out</code>.
+   */
+  public static byte[] secretOf(long seed, byte[] out) {
+    for (int i = 0; i < SECRET_SIZE; i += 16) {
+      OzBits.putLongLE(out, i, get64bits(SECRET, i) + seed);
+      OzBits.putLongLE(out, i + 8, get64bits(SECRET, i + 8) - seed);
+    }
+    return out;
+  }
+
+  /** @return the high 64 bits of the unsigned 128-bit product of <code>a</code> and <code>b</code>. */
+  public static long mulHi(long a, long b) {
+    long aLo = a & 0xFFFFFFFFL, aHi = a >>> 32;
+    long bLo = b & 0xFFFFFFFFL, bHi = b >>> 32;
+    long loLo = aLo * bLo, hiLo = aHi * bLo, loHi = aLo * bHi, hiHi = aHi * bHi;
+    long cross = (loLo >>> 32) + (hiLo & 0xFFFFFFFFL) + loHi;
+    return (hiLo >>> 32) + (cross >>> 32) + hiHi;
+  }
+
+  public static long mul128fold64(long a, long b) {
+    return (a * b) ^ mulHi(a, b);
+  }
+
+  public static long avalanche(long h) {
+    h ^= h >>> 37;
+    h *= PRIME_MX1;
+    return h ^ (h >>> 32);
+  }
+
+  private static long rrmxmx(long h, int len) {
+    h ^= rotl64(h, 49) ^ rotl64(h, 24);
+    h *= PRIME_MX2;
+    h ^= (h >>> 35) + len;
+    h *= PRIME_MX2;
+    return h ^ (h >>> 28);
+  }
+
+  private static long mix16B(byte[] b, int p, byte[] s, int sp, long seed) {
+    return mul128fold64(
+        get64bits(b, p) ^ (get64bits(s, sp) + seed),
+        get64bits(b, p + 8) ^ (get64bits(s, sp + 8) - seed)
+    );
+  }
+
+  private static long u32(byte[] b, int p) {
+    return get32bits(b, p) & 0xFFFFFFFFL;
+  }
+
+  private static long combined1to3(byte[] b, int off, int len) {
+    int c1 = b[off] & 0xFF, c2 = b[off + (len >> 1)] & 0xFF, c3 = b[off + len - 1] & 0xFF;
+    return ((c1 << 16) | (c2 << 24) | c3 | (len << 8)) & 0xFFFFFFFFL;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Long inputs, shared by XXH3 64 and XXH128.
+
+  public static void accumulate512(long[] acc, byte[] b, int p, byte[] s, int sp) {
+    for (int i = 0; i < 8; i++) {
+      long data = get64bits(b, p + 8 * i);
+      long key = data ^ get64bits(s, sp + 8 * i);
+      acc[i ^ 1] += data;
+      acc[i] += (key & 0xFFFFFFFFL) * (key >>> 32);
+    }
+  }
+
+  public static void accumulate(long[] acc, byte[] b, int p, byte[] s, int sp, int nbStripes) {
+    for (int n = 0; n < nbStripes; n++) {
+      accumulate512(acc, b, p + n * STRIPE_LEN, s, sp + n * SECRET_CONSUME_RATE);
+    }
+  }
+
+  public static void scramble(long[] acc, byte[] s, int sp) {
+    for (int i = 0; i < 8; i++) {
+      long a = acc[i];
+      a ^= a >>> 47;
+      a ^= get64bits(s, sp + 8 * i);
+      acc[i] = a * (PRIME32_1 & 0xFFFFFFFFL);
+    }
+  }
+
+  public static long mergeAccs(long[] acc, byte[] s, int sp, long start) {
+    long result = start;
+    for (int i = 0; i < 4; i++) {
+      result += mul128fold64(
+          acc[2 * i] ^ get64bits(s, sp + 16 * i),
+          acc[2 * i + 1] ^ get64bits(s, sp + 16 * i + 8)
+      );
+    }
+    return avalanche(result);
+  }
+
+  private static long[] hashLong(byte[] b, int off, int len, byte[] s) {
+    long[] acc = initAcc(new long[8]);
+    int nbBlocks = (len - 1) / BLOCK_LEN;
+    for (int n = 0; n < nbBlocks; n++) {
+      accumulate(acc, b, off + n * BLOCK_LEN, s, 0, STRIPES_PER_BLOCK);
+      scramble(acc, s, SECRET_SIZE - STRIPE_LEN);
+    }
+    int nbStripes = ((len - 1) - (BLOCK_LEN * nbBlocks)) / STRIPE_LEN;
+    accumulate(acc, b, off + nbBlocks * BLOCK_LEN, s, 0, nbStripes);
+    accumulate512(acc, b, off + len - STRIPE_LEN, s, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+    return acc;
+  }
+
+  // ---------------------------------------------------------------------------
+  // XXH3 64
+
+  public static long hash64(byte[] b, int off, int len, long seed) {
+    if (len <= 16) {
+      return len0to16(b, off, len, seed);
+    } else if (len <= 128) {
+      return len17to128(b, off, len, seed);
+    } else if (len <= MIDSIZE_MAX) {
+      return len129to240(b, off, len, seed);
+    }
+    byte[] s = seed == 0 ? SECRET : secretOf(seed, new byte[SECRET_SIZE]);
+    return mergeAccs(hashLong(b, off, len, s), s, SECRET_MERGEACCS_START, len * PRIME64_1);
+  }
+
+  public static long hash64(byte[] b) {
+    return hash64(b, 0, b.length, 0);
+  }
+
+  private static long len0to16(byte[] b, int off, int len, long seed) {
+    byte[] s = SECRET;
+    if (len > 8) {
+      long bitflip1 = (get64bits(s, 24) ^ get64bits(s, 32)) + seed;
+      long bitflip2 = (get64bits(s, 40) ^ get64bits(s, 48)) - seed;
+      long lo = get64bits(b, off) ^ bitflip1;
+      long hi = get64bits(b, off + len - 8) ^ bitflip2;
+      long acc = len + Long.reverseBytes(lo) + hi + mul128fold64(lo, hi);
+      return avalanche(acc);
+    } else if (len >= 4) {
+      seed ^= (Integer.reverseBytes((int) seed) & 0xFFFFFFFFL) << 32;
+      long in1 = u32(b, off), in2 = u32(b, off + len - 4);
+      long bitflip = (get64bits(s, 8) ^ get64bits(s, 16)) - seed;
+      long in64 = in2 + (in1 << 32);
+      return rrmxmx(in64 ^ bitflip, len);
+    } else if (len > 0) {
+      long bitflip = (u32(s, 0) ^ u32(s, 4)) + seed;
+      return avalanche64(combined1to3(b, off, len) ^ bitflip);
+    }
+    return avalanche64(seed ^ (get64bits(s, 56) ^ get64bits(s, 64)));
+  }
+
+  private static long len17to128(byte[] b, int off, int len, long seed) {
+    byte[] s = SECRET;
+    long acc = len * PRIME64_1;
+    if (len > 32) {
+      if (len > 64) {
+        if (len > 96) {
+          acc += mix16B(b, off + 48, s, 96, seed);
+          acc += mix16B(b, off + len - 64, s, 112, seed);
+        }
+        acc += mix16B(b, off + 32, s, 64, seed);
+        acc += mix16B(b, off + len - 48, s, 80, seed);
+      }
+      acc += mix16B(b, off + 16, s, 32, seed);
+      acc += mix16B(b, off + len - 32, s, 48, seed);
+    }
+    acc += mix16B(b, off, s, 0, seed);
+    acc += mix16B(b, off + len - 16, s, 16, seed);
+    return avalanche(acc);
+  }
+
+  private static long len129to240(byte[] b, int off, int len, long seed) {
+    byte[] s = SECRET;
+    long acc = len * PRIME64_1;
+    int nbRounds = len / 16;
+    for (int i = 0; i < 8; i++) {
+      acc += mix16B(b, off + 16 * i, s, 16 * i, seed);
+    }
+    acc = avalanche(acc);
+    for (int i = 8; i < nbRounds; i++) {
+      acc += mix16B(b, off + 16 * i, s, 16 * (i - 8) + MIDSIZE_STARTOFFSET, seed);
+    }
+    acc += mix16B(b, off + len - 16, s, SECRET_SIZE_MIN - MIDSIZE_LASTOFFSET, seed);
+    return avalanche(acc);
+  }
+
+  // ---------------------------------------------------------------------------
+  // XXH128
+
+  public static OzHash128 hash128(byte[] b, int off, int len, long seed) {
+    if (len <= 16) {
+      return len0to16x128(b, off, len, seed);
+    } else if (len <= 128) {
+      return len17to128x128(b, off, len, seed);
+    } else if (len <= MIDSIZE_MAX) {
+      return len129to240x128(b, off, len, seed);
+    }
+    byte[] s = seed == 0 ? SECRET : secretOf(seed, new byte[SECRET_SIZE]);
+    return hashLong128(hashLong(b, off, len, s), s, len);
+  }
+
+  public static OzHash128 hash128(byte[] b) {
+    return hash128(b, 0, b.length, 0);
+  }
+
+  static OzHash128 hashLong128(long[] acc, byte[] s, long len) {
+    return new OzHash128(
+        mergeAccs(acc, s, SECRET_MERGEACCS_START, len * PRIME64_1),
+        mergeAccs(acc, s, SECRET_SIZE - STRIPE_LEN - SECRET_MERGEACCS_START, ~(len * PRIME64_2))
+    );
+  }
+
+  private static OzHash128 len0to16x128(byte[] b, int off, int len, long seed) {
+    byte[] s = SECRET;
+    if (len > 8) {
+      long bitflipl = (get64bits(s, 32) ^ get64bits(s, 40)) - seed;
+      long bitfliph = (get64bits(s, 48) ^ get64bits(s, 56)) + seed;
+      long inLo = get64bits(b, off), inHi = get64bits(b, off + len - 8);
+      long m = inLo ^ inHi ^ bitflipl;
+      long mLo = m * PRIME64_1, mHi = mulHi(m, PRIME64_1);
+      mLo += (long) (len - 1) << 54;
+      inHi ^= bitfliph;
+      mHi += inHi + (inHi & 0xFFFFFFFFL) * ((PRIME32_2 & 0xFFFFFFFFL) - 1);
+      mLo ^= Long.reverseBytes(mHi);
+      long hLo = mLo * PRIME64_2, hHi = mulHi(mLo, PRIME64_2);
+      hHi += mHi * PRIME64_2;
+      return new OzHash128(avalanche(hLo), avalanche(hHi));
+    } else if (len >= 4) {
+      seed ^= (Integer.reverseBytes((int) seed) & 0xFFFFFFFFL) << 32;
+      long inLo = u32(b, off), inHi = u32(b, off + len - 4);
+      long in64 = inLo + (inHi << 32);
+      long bitflip = (get64bits(s, 16) ^ get64bits(s, 24)) + seed;
+      long keyed = in64 ^ bitflip;
+      long k = PRIME64_1 + ((long) len << 2);
+      long mLo = keyed * k, mHi = mulHi(keyed, k);
+      mHi += mLo << 1;
+      mLo ^= mHi >>> 3;
+      mLo ^= mLo >>> 35;
+      mLo *= PRIME_MX2;
+      mLo ^= mLo >>> 28;
+      return new OzHash128(mLo, avalanche(mHi));
+    } else if (len > 0) {
+      long combinedl = combined1to3(b, off, len);
+      long combinedh = Integer.rotateLeft(Integer.reverseBytes((int) combinedl), 13) & 0xFFFFFFFFL;
+      long bitflipl = (u32(s, 0) ^ u32(s, 4)) + seed;
+      long bitfliph = (u32(s, 8) ^ u32(s, 12)) - seed;
+      return new OzHash128(avalanche64(combinedl ^ bitflipl), avalanche64(combinedh ^ bitfliph));
+    }
+    long bitflipl = get64bits(s, 64) ^ get64bits(s, 72);
+    long bitfliph = get64bits(s, 80) ^ get64bits(s, 88);
+    return new OzHash128(avalanche64(seed ^ bitflipl), avalanche64(seed ^ bitfliph));
+  }
+
+  private static void mix32B(long[] acc, byte[] b, int p1, int p2, byte[] s, int sp, long seed) {
+    acc[0] += mix16B(b, p1, s, sp, seed);
+    acc[0] ^= get64bits(b, p2) + get64bits(b, p2 + 8);
+    acc[1] += mix16B(b, p2, s, sp + 16, seed);
+    acc[1] ^= get64bits(b, p1) + get64bits(b, p1 + 8);
+  }
+
+  private static OzHash128 finish128(long[] acc, int len, long seed) {
+    long lo = acc[0] + acc[1];
+    long hi = (acc[0] * PRIME64_1) + (acc[1] * PRIME64_4) + ((len - seed) * PRIME64_2);
+    return new OzHash128(avalanche(lo), -avalanche(hi));
+  }
+
+  private static OzHash128 len17to128x128(byte[] b, int off, int len, long seed) {
+    byte[] s = SECRET;
+    long[] acc = {len * PRIME64_1, 0};
+    if (len > 32) {
+      if (len > 64) {
+        if (len > 96) {
+          mix32B(acc, b, off + 48, off + len - 64, s, 96, seed);
+        }
+        mix32B(acc, b, off + 32, off + len - 48, s, 64, seed);
+      }
+      mix32B(acc, b, off + 16, off + len - 32, s, 32, seed);
+    }
+    mix32B(acc, b, off, off + len - 16, s, 0, seed);
+    return finish128(acc, len, seed);
+  }
+
+  private static OzHash128 len129to240x128(byte[] b, int off, int len, long seed) {
+    byte[] s = SECRET;
+    long[] acc = {len * PRIME64_1, 0};
+    int nbRounds = len / 32;
+    for (int i = 0; i < 4; i++) {
+      mix32B(acc, b, off + 32 * i, off + 32 * i + 16, s, 32 * i, seed);
+    }
+    acc[0] = avalanche(acc[0]);
+    acc[1] = avalanche(acc[1]);
+    for (int i = 4; i < nbRounds; i++) {
+      mix32B(acc, b, off + 32 * i, off + 32 * i + 16, s, MIDSIZE_STARTOFFSET + 32 * (i - 4), seed);
+    }
+    mix32B(acc, b, off + len - 16, off + len - 32, s, SECRET_SIZE_MIN - MIDSIZE_LASTOFFSET - 16, -seed);
+    return finish128(acc, len, seed);
+  }
+
+}
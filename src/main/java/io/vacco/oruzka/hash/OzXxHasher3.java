@@ -0,0 +1,142 @@
+package io.vacco.oruzka.hash;
+
+import java.nio.ByteBuffer;
+
+import static io.vacco.oruzka.hash.OzXxHash3.*;
+
+/**
+ * Incremental XXH3 state, which can produce both 64 and 128-bit digests.
+ * Digests are identical to {@link OzXxHash3#hash64(byte[], int, int, long)} and
+ * {@link OzXxHash3#hash128(byte[], int, int, long)} over the concatenation of
+ * all updates. Instances are not thread safe.
+ */
+public class OzXxHasher3 {
+
+  private static final int BUFFER_SIZE = 256;
+  private static final int BUFFER_STRIPES = BUFFER_SIZE / STRIPE_LEN;
+
+  private final long seed;
+  private final byte[] secret;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final byte[] lastStripe = new byte[STRIPE_LEN];
+  private final long[] acc = new long[8];
+  private final long[] accOut = new long[8];
+
+  private long total;
+  private int bufferedSize, stripesSoFar;
+
+  public OzXxHasher3(long seed) {
+    this.seed = seed;
+    this.secret = seed == 0 ? SECRET : secretOf(seed, new byte[SECRET_SIZE]);
+    reset();
+  }
+
+  public OzXxHasher3() { this(0); }
+
+  public OzXxHasher3 reset() {
+    initAcc(acc);
+    total = 0;
+    bufferedSize = 0;
+    stripesSoFar = 0;
+    return this;
+  }
+
+  private int consumeStripes(long[] acc, int stripesSoFar, byte[] b, int p, int nbStripes) {
+    if (STRIPES_PER_BLOCK - stripesSoFar <= nbStripes) {
+      int toEnd = STRIPES_PER_BLOCK - stripesSoFar;
+      int afterBlock = nbStripes - toEnd;
+      accumulate(acc, b, p, secret, stripesSoFar * SECRET_CONSUME_RATE, toEnd);
+      scramble(acc, secret, SECRET_SIZE - STRIPE_LEN);
+      accumulate(acc, b, p + toEnd * STRIPE_LEN, secret, 0, afterBlock);
+      return afterBlock;
+    }
+    accumulate(acc, b, p, secret, stripesSoFar * SECRET_CONSUME_RATE, nbStripes);
+    return stripesSoFar + nbStripes;
+  }
+
+  public OzXxHasher3 update(byte[] b, int off, int len) {
+    int p = off, end = off + len;
+    total += len;
+
+    if (bufferedSize + len <= BUFFER_SIZE) {
+      System.arraycopy(b, off, buffer, bufferedSize, len);
+      bufferedSize += len;
+      return this;
+    }
+    if (bufferedSize > 0) {
+      int fill = BUFFER_SIZE - bufferedSize;
+      System.arraycopy(b, p, buffer, bufferedSize, fill);
+      p += fill;
+      stripesSoFar = consumeStripes(acc, stripesSoFar, buffer, 0, BUFFER_STRIPES);
+      bufferedSize = 0;
+    }
+    if (p + BUFFER_SIZE < end) {
+      do {
+        stripesSoFar = consumeStripes(acc, stripesSoFar, b, p, BUFFER_STRIPES);
+        p += BUFFER_SIZE;
+      } while (p < end - BUFFER_SIZE);
+      System.arraycopy(b, p - STRIPE_LEN, buffer, BUFFER_SIZE - STRIPE_LEN, STRIPE_LEN);
+    }
+    bufferedSize = end - p;
+    System.arraycopy(b, p, buffer, 0, bufferedSize);
+    return this;
+  }
+
+  public OzXxHasher3 update(byte[] b) {
+    return update(b, 0, b.length);
+  }
+
+  /**
+   * Consumes all remaining bytes in <code>bb</code>, advancing its position to its limit.
+   * Direct buffers are copied through a fixed size scratch area.
+   *
+   * @param bb a heap or direct buffer.
+   * @return this hasher.
+   */
+  public OzXxHasher3 update(ByteBuffer bb) {
+    if (bb.hasArray()) {
+      update(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+      bb.position(bb.limit());
+      return this;
+    }
+    while (bb.hasRemaining()) {
+      int n = Math.min(STRIPE_LEN, bb.remaining());
+      bb.get(lastStripe, 0, n);
+      update(lastStripe, 0, n);
+    }
+    return this;
+  }
+
+  private long[] digestLong() {
+    System.arraycopy(acc, 0, accOut, 0, acc.length);
+    if (bufferedSize >= STRIPE_LEN) {
+      int nbStripes = (bufferedSize - 1) / STRIPE_LEN;
+      consumeStripes(accOut, stripesSoFar, buffer, 0, nbStripes);
+      accumulate512(accOut, buffer, bufferedSize - STRIPE_LEN,
+          secret, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+    } else {
+      int catchup = STRIPE_LEN - bufferedSize;
+      System.arraycopy(buffer, BUFFER_SIZE - catchup, lastStripe, 0, catchup);
+      System.arraycopy(buffer, 0, lastStripe, catchup, bufferedSize);
+      accumulate512(accOut, lastStripe, 0, secret, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+    }
+    return accOut;
+  }
+
+  public long digest64() {
+    if (total > MIDSIZE_MAX) {
+      return mergeAccs(digestLong(), secret, SECRET_MERGEACCS_START, total * OzXxHash.PRIME64_1);
+    }
+    return hash64(buffer, 0, (int) total, seed);
+  }
+
+  public OzHash128 digest128() {
+    if (total > MIDSIZE_MAX) {
+      return hashLong128(digestLong(), secret, total);
+    }
+    return hash128(buffer, 0, (int) total, seed);
+  }
+
+  public long length() { return total; }
+
+}
@@ -0,0 +1,132 @@
+package io.vacco.oruzka.hash;
+
+import java.nio.ByteBuffer;
+
+import static io.vacco.oruzka.hash.OzXxHash.*;
+
+/**
+ * Incremental XXH32 state. Holds the four lane accumulators plus a 16 byte
+ * stripe buffer, so inputs of any size hash in constant memory. Digests are
+ * identical to {@link OzXxHash#hash32(byte[], int, int, int)} over the
+ * concatenation of all updates. Instances are not thread safe.
+ */
+public class OzXxHasher32 {
+
+  private static final int STRIPE = 16;
+
+  private final byte[] mem = new byte[STRIPE];
+  private final int seed;
+
+  private int v1, v2, v3, v4;
+  private long total;
+  private int memSize;
+
+  public OzXxHasher32(int seed) {
+    this.seed = seed;
+    reset();
+  }
+
+  public OzXxHasher32() { this(0); }
+
+  public OzXxHasher32 reset() {
+    v1 = seed + PRIME32_1 + PRIME32_2;
+    v2 = seed + PRIME32_2;
+    v3 = seed;
+    v4 = seed - PRIME32_1;
+    total = 0;
+    memSize = 0;
+    return this;
+  }
+
+  private void stripe(byte[] b, int p) {
+    v1 = round32(v1, get32bits(b, p));
+    v2 = round32(v2, get32bits(b, p + 4));
+    v3 = round32(v3, get32bits(b, p + 8));
+    v4 = round32(v4, get32bits(b, p + 12));
+  }
+
+  private void stripe(ByteBuffer bb, int p) {
+    v1 = round32(v1, get32bits(bb, p));
+    v2 = round32(v2, get32bits(bb, p + 4));
+    v3 = round32(v3, get32bits(bb, p + 8));
+    v4 = round32(v4, get32bits(bb, p + 12));
+  }
+
+  public OzXxHasher32 update(byte[] b, int off, int len) {
+    int p = off, end = off + len;
+    total += len;
+
+    if (memSize + len < STRIPE) {
+      System.arraycopy(b, off, mem, memSize, len);
+      memSize += len;
+      return this;
+    }
+    if (memSize > 0) {
+      int fill = STRIPE - memSize;
+      System.arraycopy(b, p, mem, memSize, fill);
+      stripe(mem, 0);
+      p += fill;
+      memSize = 0;
+    }
+    for (int limit = end - STRIPE; p <= limit; p += STRIPE) {
+      stripe(b, p);
+    }
+    if (p < end) {
+      memSize = end - p;
+      System.arraycopy(b, p, mem, 0, memSize);
+    }
+    return this;
+  }
+
+  public OzXxHasher32 update(byte[] b) {
+    return update(b, 0, b.length);
+  }
+
+  /**
+   * Consumes all remaining bytes in <code>bb</code>, advancing its position to its limit.
+   *
+   * @param bb a heap or direct buffer.
+   * @return this hasher.
+   */
+  public OzXxHasher32 update(ByteBuffer bb) {
+    if (bb.hasArray()) {
+      update(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+      bb.position(bb.limit());
+      return this;
+    }
+    int p = bb.position(), end = bb.limit();
+    total += end - p;
+    if (memSize > 0) {
+      int n = Math.min(STRIPE - memSize, end - p);
+      bb.get(mem, memSize, n);
+      memSize += n;
+      p += n;
+      if (memSize < STRIPE) {
+        return this;
+      }
+      stripe(mem, 0);
+      memSize = 0;
+    }
+    for (int limit = end - STRIPE; p <= limit; p += STRIPE) {
+      stripe(bb, p);
+    }
+    bb.position(p);
+    memSize = end - p;
+    bb.get(mem, 0, memSize);
+    return this;
+  }
+
+  public int digest() {
+    int h32;
+    if (total >= STRIPE) {
+      h32 = rotl32(v1, 1) + rotl32(v2, 7) + rotl32(v3, 12) + rotl32(v4, 18);
+    } else {
+      h32 = seed + PRIME32_5;
+    }
+    h32 += (int) total;
+    return finalize32(h32, mem, 0, memSize);
+  }
+
+  public long length() { return total; }
+
+}
@@ -0,0 +1,253 @@
+package io.vacco.oruzka.hash;
+
+import java.nio.ByteBuffer;
+
+import static io.vacco.oruzka.hash.OzXxHash.*;
+
+/**
+ * Incremental XXH64 state. Holds the four lane accumulators plus a 32 byte
+ * stripe buffer, so inputs of any size hash in constant memory. Digests are
+ * identical to {@link OzXxHash#hash64(byte[], int, int, long)} over the
+ * concatenation of all updates. Instances are not thread safe.
+ */
+public class OzXxHasher64 {
+
+  private static final int STRIPE = 32;
+
+  private final byte[] mem = new byte[STRIPE];
+  private long seed, v1, v2, v3, v4, total;
+  private int memSize;
+
+  public OzXxHasher64(long seed) {
+    this.seed = seed;
+    reset();
+  }
+
+  public OzXxHasher64() { this(0); }
+
+  public OzXxHasher64 reset(long seed) {
+    this.seed = seed;
+    return reset();
+  }
+
+  public OzXxHasher64 reset() {
+    v1 = seed + PRIME64_1 + PRIME64_2;
+    v2 = seed + PRIME64_2;
+    v3 = seed;
+    v4 = seed - PRIME64_1;
+    total = 0;
+    memSize = 0;
+    return this;
+  }
+
+  private void stripe(byte[] b, int p) {
+    v1 = round64(v1, get64bits(b, p));
+    v2 = round64(v2, get64bits(b, p + 8));
+    v3 = round64(v3, get64bits(b, p + 16));
+    v4 = round64(v4, get64bits(b, p + 24));
+  }
+
+  private void stripe(ByteBuffer bb, int p) {
+    v1 = round64(v1, get64bits(bb, p));
+    v2 = round64(v2, get64bits(bb, p + 8));
+    v3 = round64(v3, get64bits(bb, p + 16));
+    v4 = round64(v4, get64bits(bb, p + 24));
+  }
+
+  public OzXxHasher64 update(byte[] b, int off, int len) {
+    int p = off, end = off + len;
+    total += len;
+
+    if (memSize + len < STRIPE) {
+      System.arraycopy(b, off, mem, memSize, len);
+      memSize += len;
+      return this;
+    }
+    if (memSize > 0) {
+      int fill = STRIPE - memSize;
+      System.arraycopy(b, p, mem, memSize, fill);
+      stripe(mem, 0);
+      p += fill;
+      memSize = 0;
+    }
+    for (int limit = end - STRIPE; p <= limit; p += STRIPE) {
+      stripe(b, p);
+    }
+    if (p < end) {
+      memSize = end - p;
+      System.arraycopy(b, p, mem, 0, memSize);
+    }
+    return this;
+  }
+
+  public OzXxHasher64 update(byte[] b) {
+    return update(b, 0, b.length);
+  }
+
+  /**
+   * Consumes all remaining bytes in <code>bb</code>, advancing its position to its limit.
+   *
+   * @param bb a heap or direct buffer.
+   * @return this hasher.
+   */
+  public OzXxHasher64 update(ByteBuffer bb) {
+    if (bb.hasArray()) {
+      update(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+      bb.position(bb.limit());
+      return this;
+    }
+    int p = bb.position(), end = bb.limit();
+    total += end - p;
+    if (memSize > 0) {
+      int n = Math.min(STRIPE - memSize, end - p);
+      bb.get(mem, memSize, n);
+      memSize += n;
+      p += n;
+      if (memSize < STRIPE) {
+        return this;
+      }
+      stripe(mem, 0);
+      memSize = 0;
+    }
+    for (int limit = end - STRIPE; p <= limit; p += STRIPE) {
+      stripe(bb, p);
+    }
+    bb.position(p);
+    memSize = end - p;
+    bb.get(mem, 0, memSize);
+    return this;
+  }
+
+  private void put(int b) {
+    mem[memSize++] = (byte) b;
+    if (memSize == STRIPE) {
+      stripe(mem, 0);
+      memSize = 0;
+    }
+  }
+
+  private static long word16(CharSequence cs, int i) {
+    return cs.charAt(i)
+        | (long) cs.charAt(i + 1) << 16
+        | (long) cs.charAt(i + 2) << 32
+        | (long) cs.charAt(i + 3) << 48;
+  }
+
+  /**
+   * Hashes the UTF-16 code units of <code>cs</code> as little-endian byte pairs (no byte order
+   * mark), without encoding to an intermediate array. Code units are taken as-is, so unpaired
+   * surrogates are hashed verbatim rather than replaced.
+   *
+   * @param cs the characters to hash.
+   * @return this hasher.
+   */
+  public OzXxHasher64 updateUtf16(CharSequence cs) {
+    int i = 0, n = cs.length();
+    total += 2L * n;
+    while (i < n) {
+      if (memSize == 0) {
+        for (int limit = n - 16; i <= limit; i += 16) {
+          v1 = round64(v1, word16(cs, i));
+          v2 = round64(v2, word16(cs, i + 4));
+          v3 = round64(v3, word16(cs, i + 8));
+          v4 = round64(v4, word16(cs, i + 12));
+        }
+        if (i == n) {
+          break;
+        }
+      }
+      char c = cs.charAt(i++);
+      put(c);
+      put(c >>> 8);
+    }
+    return this;
+  }
+
+  private static long word8(CharSequence cs, int i) {
+    long w = 0;
+    for (int k = 7; k >= 0; k--) {
+      w = (w << 8) | cs.charAt(i + k);
+    }
+    return w;
+  }
+
+  private static boolean isAscii(CharSequence cs, int i, int len) {
+    int bits = 0;
+    for (int k = i; k < i + len; k++) {
+      bits |= cs.charAt(k);
+    }
+    return bits < 0x80;
+  }
+
+  /**
+   * Hashes the UTF-8 encoding of <code>cs</code> without encoding to an intermediate array.
+   * Unpaired surrogates are encoded as <code>'?'</code>, matching
+   * <code>String.getBytes(StandardCharsets.UTF_8)</code>.
+   *
+   * @param cs the characters to hash.
+   * @return this hasher.
+   */
+  public OzXxHasher64 updateUtf8(CharSequence cs) {
+    int i = 0, n = cs.length();
+    while (i < n) {
+      if (memSize == 0) {
+        while (i + STRIPE <= n && isAscii(cs, i, STRIPE)) {
+          v1 = round64(v1, word8(cs, i));
+          v2 = round64(v2, word8(cs, i + 8));
+          v3 = round64(v3, word8(cs, i + 16));
+          v4 = round64(v4, word8(cs, i + 24));
+          total += STRIPE;
+          i += STRIPE;
+        }
+        if (i == n) {
+          break;
+        }
+      }
+      char c = cs.charAt(i++);
+      if (c < 0x80) {
+        put(c);
+        total += 1;
+      } else if (c < 0x800) {
+        put(0xC0 | (c >>> 6));
+        put(0x80 | (c & 0x3F));
+        total += 2;
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i < n && Character.isLowSurrogate(cs.charAt(i))) {
+          int cp = Character.toCodePoint(c, cs.charAt(i++));
+          put(0xF0 | (cp >>> 18));
+          put(0x80 | ((cp >>> 12) & 0x3F));
+          put(0x80 | ((cp >>> 6) & 0x3F));
+          put(0x80 | (cp & 0x3F));
+          total += 4;
+        } else {
+          put('?');
+          total += 1;
+        }
+      } else {
+        put(0xE0 | (c >>> 12));
+        put(0x80 | ((c >>> 6) & 0x3F));
+        put(0x80 | (c & 0x3F));
+        total += 3;
+      }
+    }
+    return this;
+  }
+
+  public long digest() {
+    long h64;
+    if (total >= STRIPE) {
+      h64 = rotl64(v1, 1) + rotl64(v2, 7) + rotl64(v3, 12) + rotl64(v4, 18);
+      h64 = mergeRound64(h64, v1);
+      h64 = mergeRound64(h64, v2);
+      h64 = mergeRound64(h64, v3);
+      h64 = mergeRound64(h64, v4);
+    } else {
+      h64 = seed + PRIME64_5;
+    }
+    h64 += total;
+    return finalize64(h64, mem, 0, memSize);
+  }
+
+  public long length() { return total; }
+
+}
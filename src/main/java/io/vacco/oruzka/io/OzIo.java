@@ -1,16 +1,46 @@
 package io.vacco.oruzka.io;
 
-import io.vacco.oruzka.core.OFnSupplier;
+import io.vacco.oruzka.core.*;
 
 import java.io.*;
-import java.net.URL;
+import java.net.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
 import java.util.function.Function;
 import java.util.stream.*;
 
 public class OzIo {
 
+  /** Smallest <code>file:</code> resource worth memory mapping in {@link #withUtf8Lines}. */
+  public static final long MAPPED_LINES_MIN_BYTES = 1 << 20;
+
+  /** @return the path of a <code>file:</code> URL, or null if it is not one, or not a valid URI. */
+  private static Path pathOf(URL u) {
+    if (!"file".equals(u.getProtocol())) {
+      return null;
+    }
+    try {
+      return Paths.get(u.toURI());
+    } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+      return null; // e.g. unencoded spaces, or a host authority; openStream still handles those
+    }
+  }
+
+  /**
+   * @param u a resource. <code>file:</code> resources of at least {@value #MAPPED_LINES_MIN_BYTES}
+   *          bytes are memory mapped, so their line stream can be processed in parallel.
+   *          See {@link OzMappedLines}.
+   * @param fn a function of the resource's lines.
+   * @return the function's result.
+   */
   public static <T> T withUtf8Lines(URL u, Function<Stream<String>, T> fn) throws IOException {
+    Path p = pathOf(u);
+    if (p != null && Files.isRegularFile(p) && Files.size(p) >= MAPPED_LINES_MIN_BYTES) {
+      try (OzMappedLines ml = OzMappedLines.of(p)) {
+        return fn.apply(ml.strings());
+      }
+    }
     T out;
     try (InputStream in = u.openStream()) {
       BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
@@ -19,10 +49,54 @@ public class OzIo {
     return out;
   }
 
+  /**
+   * Reads a resource's bytes. The length of <code>file:</code> resources, jar entries and
+   * responses with a content length is known up front, and their bytes are read straight
+   * into an exact-size array.
+   *
+   * @param u a resource.
+   * @return the resource's bytes.
+   */
+  public static byte[] loadBytesFrom(URL u) {
+    return OFnSupplier.tryGet(() -> {
+      Path p = pathOf(u);
+      if (p != null) {
+        return Files.readAllBytes(p);
+      }
+      URLConnection c = u.openConnection();
+      long len = c.getContentLengthLong();
+      OzCheck.isTrue(len < Integer.MAX_VALUE - 8, "io.resource.too.large");
+      try (InputStream in = c.getInputStream()) {
+        byte[] out = new byte[len >= 0 ? (int) len : 0];
+        int n = 0, r = 0;
+        while (n < out.length && (r = in.read(out, n, out.length - n)) > 0) {
+          n += r;
+        }
+        if (n < out.length) { // shorter than announced
+          return Arrays.copyOf(out, n);
+        }
+        if (len >= 0 && (r = in.read()) == -1) {
+          return out;
+        }
+        OzBytes b = new OzBytes(out.length + 8192).append(out); // unknown or longer than announced
+        if (len >= 0) {
+          b.append((byte) r);
+        }
+        byte[] chunk = new byte[8192];
+        while ((r = in.read(chunk)) != -1) {
+          b.append(chunk, 0, r);
+        }
+        return b.toByteArray();
+      }
+    });
+  }
+
+  /**
+   * @param u a UTF-8 text resource.
+   * @return the resource's text, decoded in a single pass, with its original line endings.
+   */
   public static String loadFrom(URL u) {
-    return OFnSupplier.tryGet(() -> withUtf8Lines(
-        u, str -> str.collect(Collectors.joining(System.lineSeparator()))
-    ));
+    return new String(loadBytesFrom(u), StandardCharsets.UTF_8);
   }
 
   public static String[] loadLinesFrom(URL u) {
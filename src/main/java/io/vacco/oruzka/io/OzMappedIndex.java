@@ -0,0 +1,294 @@
+package io.vacco.oruzka.io;
+
+import io.vacco.oruzka.core.*;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Persistent key to offset index, stored as a fixed capacity open addressing table in a
+ * memory mapped file. Opening an index maps the file and reads its header, so startup cost
+ * does not depend on the number of entries.
+ *
+ * Keys are identified by their XXH64 hash (keys with equal hashes are the same key), and
+ * values are typically offsets of records in a separate data file. Each slot holds the key
+ * hash, the value and the entry's insertion sequence number.
+ *
+ * One writer (guarded by a file lock) inserts entries, and many readers (in any process)
+ * can map the same file. Inserted entries become visible to readers, and durable, once the
+ * writer commits: the table is forced to disk, and then the inactive one of two checksummed
+ * header copies is overwritten with the new entry count and a higher generation. Readers use
+ * the newest valid header, and ignore entries beyond its count. If the writer crashes, the
+ * next writer rolls back any entries inserted after the last commit.
+ */
+public class OzMappedIndex implements Closeable {
+
+  public static final long MISSING = -1;
+
+  private static final int MAGIC = 0x4F5A4958; // OZIX
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 4096, HEADER_COPY = 64, HEADER_FIELDS = 32;
+  private static final int SLOT_BYTES = 24, WINDOW_SHIFT = 25, WINDOW_SLOTS = 1 << WINDOW_SHIFT;
+  private static final double MAX_LOAD = 0.8;
+
+  private final FileChannel ch;
+  private final FileLock lock;
+  private final MappedByteBuffer header;
+  private final MappedByteBuffer[] windows;
+  private final long mask;
+
+  public final long capacity;
+  private long count, generation, pending;
+
+  private OzMappedIndex(FileChannel ch, FileLock lock, long capacity) throws IOException {
+    this.ch = ch;
+    this.lock = lock;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    FileChannel.MapMode mode = lock != null ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+    this.header = ch.map(mode, 0, HEADER_BYTES);
+    this.windows = new MappedByteBuffer[(int) ((capacity + WINDOW_SLOTS - 1) >>> WINDOW_SHIFT)];
+    for (int w = 0; w < windows.length; w++) {
+      long slots = Math.min(WINDOW_SLOTS, capacity - ((long) w << WINDOW_SHIFT));
+      windows[w] = ch.map(mode, HEADER_BYTES + ((long) w << WINDOW_SHIFT) * SLOT_BYTES, slots * SLOT_BYTES);
+    }
+  }
+
+  /**
+   * Creates an empty index file, and opens it for writing. If setup fails, the file is removed.
+   *
+   * @param p the index file. Must not exist.
+   * @param capacity the number of slots, rounded up to a power of 2. At most 80% of them can be used.
+   * @return the index writer.
+   */
+  public static OzMappedIndex create(Path p, long capacity) {
+    OzCheck.isTrue(capacity > 0 && capacity <= 1L << 40, "mapped.index.invalid.capacity");
+    long cap = Long.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    return OFnSupplier.tryGet(() -> {
+      FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        ch.write(ByteBuffer.allocate(1), HEADER_BYTES + cap * SLOT_BYTES - 1); // sizes the (sparse) file
+        OzMappedIndex idx = new OzMappedIndex(ch, writerLock(ch), cap);
+        idx.writeHeader(0, 0, 0);
+        idx.writeHeader(1, 0, 1);
+        idx.header.force();
+        idx.readHeader();
+        idx.pending = idx.count;
+        return idx;
+      } catch (Exception e) {
+        ch.close();
+        Files.deleteIfExists(p);
+        throw e;
+      }
+    });
+  }
+
+  /**
+   * Opens an existing index for writing. Entries inserted after the last commit (by a writer
+   * which crashed, or closed without committing) are rolled back, which scans the table once.
+   *
+   * @param p the index file.
+   * @return the index writer.
+   */
+  public static OzMappedIndex openWriter(Path p) {
+    return OFnSupplier.tryGet(() -> {
+      FileChannel ch = FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      FileLock lock = writerLock(ch);
+      OzMappedIndex idx = new OzMappedIndex(ch, lock, capacityOf(ch));
+      idx.readHeader();
+      idx.rollback();
+      idx.pending = idx.count;
+      return idx;
+    });
+  }
+
+  /** @return a read-only view of an index. See {@link #refresh()}. */
+  public static OzMappedIndex openReader(Path p) {
+    return OFnSupplier.tryGet(() -> {
+      FileChannel ch = FileChannel.open(p, StandardOpenOption.READ);
+      OzMappedIndex idx = new OzMappedIndex(ch, null, capacityOf(ch));
+      idx.readHeader();
+      return idx;
+    });
+  }
+
+  private static FileLock writerLock(FileChannel ch) throws IOException {
+    FileLock l;
+    try {
+      l = ch.tryLock(0, 1, false);
+    } catch (OverlappingFileLockException e) {
+      l = null;
+    }
+    if (l == null) {
+      ch.close();
+      throw new IllegalStateException("mapped.index.writer.locked");
+    }
+    return l;
+  }
+
+  private static long capacityOf(FileChannel ch) throws IOException {
+    long slots = (ch.size() - HEADER_BYTES) / SLOT_BYTES;
+    OzCheck.isTrue(slots > 0 && Long.bitCount(slots) == 1, "mapped.index.invalid.file");
+    return slots;
+  }
+
+  private void writeHeader(int copy, long count, long generation) {
+    byte[] b = new byte[HEADER_FIELDS];
+    ByteBuffer f = ByteBuffer.wrap(b);
+    f.putInt(MAGIC).putInt(VERSION).putLong(capacity).putLong(count).putLong(generation);
+    ByteBuffer h = header.duplicate();
+    h.position(copy * HEADER_COPY);
+    h.put(b).putLong(OzXxHash.hash64(b, 0, b.length, 0));
+  }
+
+  /** @return <code>{count, generation}</code> of a header copy, or null if it is invalid. */
+  private long[] headerCopy(int copy) {
+    byte[] b = new byte[HEADER_FIELDS];
+    ByteBuffer h = header.duplicate();
+    h.position(copy * HEADER_COPY);
+    h.get(b);
+    long check = h.getLong();
+    ByteBuffer f = ByteBuffer.wrap(b);
+    if (check != OzXxHash.hash64(b, 0, b.length, 0) || f.getInt() != MAGIC
+        || f.getInt() != VERSION || f.getLong() != capacity) {
+      return null;
+    }
+    return new long[] {f.getLong(), f.getLong()};
+  }
+
+  private void readHeader() {
+    long[] a = headerCopy(0), b = headerCopy(1);
+    OzCheck.isTrue(a != null || b != null, "mapped.index.corrupt.header");
+    long[] h = a == null ? b : b == null ? a : a[1] >= b[1] ? a : b;
+    this.count = h[0];
+    this.generation = h[1];
+  }
+
+  private ByteBuffer window(long slot) {
+    return windows[(int) (slot >>> WINDOW_SHIFT)];
+  }
+
+  private static int pos(long slot) {
+    return (int) (slot & (WINDOW_SLOTS - 1)) * SLOT_BYTES;
+  }
+
+  private static long spread(long keyHash) {
+    return keyHash == 0 ? 1 : keyHash;
+  }
+
+  private void rollback() {
+    for (long s = 0; s < capacity; s++) {
+      ByteBuffer w = window(s);
+      int p = pos(s);
+      if (w.getLong(p) != 0 && Long.compareUnsigned(w.getLong(p + 16) - 1, count) >= 0) {
+        w.putLong(p, 0).putLong(p + 8, 0).putLong(p + 16, 0);
+      }
+    }
+  }
+
+  /**
+   * @param keyHash a key's XXH64 hash.
+   * @return the key's committed value, or {@link #MISSING}.
+   */
+  public long get(long keyHash) {
+    long h = spread(keyHash);
+    for (long s = OzXxHash.avalanche64(h) & mask, n = 0; n < capacity; s = (s + 1) & mask, n++) {
+      ByteBuffer w = window(s);
+      int p = pos(s);
+      long k = w.getLong(p);
+      if (k == 0) {
+        return MISSING;
+      }
+      if (k == h) {
+        long seq = w.getLong(p + 16);
+        return seq > 0 && seq <= count ? w.getLong(p + 8) : MISSING;
+      }
+    }
+    return MISSING;
+  }
+
+  public long get(byte[] key) {
+    return get(OzXxHash.hash64(key, 0, key.length, 0));
+  }
+
+  /** @param key a key, hashed as UTF-8 without encoding it first. */
+  public long get(CharSequence key) {
+    return get(OzXxHash.hashCharsUtf8(key, 0));
+  }
+
+  /**
+   * Inserts an entry, visible to readers after {@link #commit()}. Entries cannot be
+   * replaced or removed.
+   *
+   * @param keyHash a key's XXH64 hash.
+   * @param value the key's value. {@link #MISSING} is reserved for absent keys.
+   * @return <code>false</code> if the key was already present.
+   */
+  public boolean put(long keyHash, long value) {
+    OzCheck.isTrue(lock != null, "mapped.index.read.only");
+    OzCheck.isTrue(value != MISSING, "mapped.index.invalid.value");
+    long h = spread(keyHash);
+    for (long s = OzXxHash.avalanche64(h) & mask; ; s = (s + 1) & mask) {
+      ByteBuffer w = window(s);
+      int p = pos(s);
+      long k = w.getLong(p);
+      if (k == h) {
+        return false;
+      }
+      if (k == 0) {
+        OzCheck.isTrue(pending + 1 <= capacity * MAX_LOAD, "mapped.index.full");
+        w.putLong(p + 8, value).putLong(p + 16, ++pending).putLong(p, h);
+        return true;
+      }
+    }
+  }
+
+  public boolean put(byte[] key, long value) {
+    return put(OzXxHash.hash64(key, 0, key.length, 0), value);
+  }
+
+  public boolean put(CharSequence key, long value) {
+    return put(OzXxHash.hashCharsUtf8(key, 0), value);
+  }
+
+  /** Makes every inserted entry durable and visible to readers. */
+  public void commit() {
+    OzCheck.isTrue(lock != null, "mapped.index.read.only");
+    if (pending == count) {
+      return;
+    }
+    for (MappedByteBuffer w : windows) {
+      w.force();
+    }
+    writeHeader((int) ((generation + 1) & 1), pending, generation + 1);
+    header.force();
+    count = pending;
+    generation++;
+  }
+
+  /** Re-reads the header, to see entries committed since this index was opened. */
+  public OzMappedIndex refresh() {
+    if (lock == null) {
+      readHeader();
+    }
+    return this;
+  }
+
+  /** @return the number of committed entries. */
+  public long size() {
+    return count;
+  }
+
+  /** Closes the index, without committing pending entries. */
+  @Override public void close() {
+    OFnBlock.tryRun(() -> {
+      if (lock != null) {
+        lock.release();
+      }
+      ch.close();
+    });
+  }
+}
@@ -0,0 +1,217 @@
+package io.vacco.oruzka.io;
+
+import io.vacco.oruzka.core.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+/**
+ * UTF-8 text lines of a memory mapped file. Lines end with <code>\n</code>, <code>\r\n</code>
+ * or <code>\r</code>, as for {@link java.io.BufferedReader#readLine()}, and terminators are
+ * not part of a line.
+ *
+ * The file is mapped in segments of up to {@value #SEGMENT_BYTES} bytes (by default), each ending on a
+ * line boundary, so files of any size can be mapped. Line streams split their byte range in
+ * half at the next line boundary, so parallel streams scale with the number of cores
+ * instead of reading the file from a single thread.
+ *
+ * Lines are views into the mapping, and are only decoded when converted to a
+ * {@link String}. The mapping is released once this object and its lines are no longer
+ * referenced.
+ */
+public class OzMappedLines implements Closeable {
+
+  public static final int SEGMENT_BYTES = 1 << 30;
+
+  /** A line, as a view of its UTF-8 bytes in a read-only mapped segment. */
+  public static final class Line {
+
+    public final ByteBuffer buffer;
+    public final int offset, length;
+
+    Line(ByteBuffer buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /** @return a view of the line's bytes, from position 0 to its limit. */
+    public ByteBuffer bytes() {
+      ByteBuffer b = buffer.duplicate();
+      b.limit(offset + length).position(offset);
+      return b.slice();
+    }
+
+    public byte byteAt(int i) {
+      OzCheck.isTrue(i >= 0 && i < length, "mapped.lines.index.out.of.bounds");
+      return buffer.get(offset + i);
+    }
+
+    /** @return the decoded line. */
+    @Override public String toString() {
+      byte[] b = new byte[length];
+      bytes().get(b);
+      return new String(b, StandardCharsets.UTF_8);
+    }
+  }
+
+  private final FileChannel ch;
+  private final ByteBuffer[] segments;
+  private final long[] starts;
+  public final long size;
+
+  private OzMappedLines(FileChannel ch, int segmentBytes) throws IOException {
+    this.ch = ch;
+    this.size = ch.size();
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    for (long s = 0; size - s > segmentBytes; ) {
+      s = lineEnd(ch, s + segmentBytes - 1, s);
+      bounds.add(s);
+    }
+    bounds.add(size);
+    this.segments = new ByteBuffer[bounds.size() - 1];
+    this.starts = new long[bounds.size()];
+    for (int i = 0; i < bounds.size(); i++) {
+      starts[i] = bounds.get(i);
+    }
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, starts[i], starts[i + 1] - starts[i]).asReadOnlyBuffer();
+    }
+  }
+
+  /**
+   * @return the offset after the last line terminator in <code>[min, p]</code>. A carriage
+   *         return at <code>p</code> which is followed by a line feed is skipped, so
+   *         <code>\r\n</code> pairs are never split across segments.
+   */
+  private static long lineEnd(FileChannel ch, long p, long min) throws IOException {
+    ByteBuffer b = ByteBuffer.allocate(64 * 1024), next = ByteBuffer.allocate(1);
+    boolean crlf = ch.read(next, p + 1) > 0 && next.get(0) == '\n';
+    for (long end = p + 1; end > min; end -= b.capacity()) {
+      long from = Math.max(min, end - b.capacity());
+      b.clear().limit((int) (end - from));
+      while (b.hasRemaining() && ch.read(b, from + b.position()) > 0) { /* fill */ }
+      for (int i = b.position() - 1; i >= 0; i--) {
+        byte c = b.get(i);
+        if (c == '\n' || c == '\r' && (from + i < p || !crlf)) {
+          return from + i + 1;
+        }
+      }
+    }
+    throw new IllegalStateException("mapped.lines.line.too.long");
+  }
+
+  /**
+   * @param p a UTF-8 text file.
+   * @param segmentBytes the maximum mapped segment size. No line can be longer than this.
+   * @return the file's lines.
+   */
+  public static OzMappedLines of(Path p, int segmentBytes) {
+    OzCheck.isTrue(segmentBytes > 0, "mapped.lines.invalid.segment.size");
+    return OFnSupplier.tryGet(() -> {
+      FileChannel ch = FileChannel.open(p, StandardOpenOption.READ);
+      try {
+        return new OzMappedLines(ch, segmentBytes);
+      } catch (Exception e) {
+        ch.close();
+        throw e;
+      }
+    });
+  }
+
+  public static OzMappedLines of(Path p) {
+    return of(p, SEGMENT_BYTES);
+  }
+
+  private int segmentOf(long pos) {
+    int i = Arrays.binarySearch(starts, pos);
+    return i >= 0 ? Math.min(i, segments.length - 1) : -i - 2;
+  }
+
+  private class LineSpliterator implements Spliterator<Line> {
+
+    private long pos;
+    private final long end;
+
+    LineSpliterator(long pos, long end) {
+      this.pos = pos;
+      this.end = end;
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super Line> action) {
+      if (pos >= end) {
+        return false;
+      }
+      int s = segmentOf(pos);
+      ByteBuffer b = segments[s];
+      int from = (int) (pos - starts[s]), i = from, lim = b.limit();
+      byte c = 0;
+      while (i < lim && (c = b.get(i)) != '\n' && c != '\r') {
+        i++;
+      }
+      int next = i == lim ? i : c == '\r' && i + 1 < lim && b.get(i + 1) == '\n' ? i + 2 : i + 1;
+      pos = starts[s] + next;
+      action.accept(new Line(b, from, i - from));
+      return true;
+    }
+
+    @Override public void forEachRemaining(Consumer<? super Line> action) {
+      while (tryAdvance(action)) { /* next line */ }
+    }
+
+    @Override public Spliterator<Line> trySplit() {
+      long mid = (pos + end) >>> 1;
+      if (end - pos < 4096) {
+        return null;
+      }
+      int s = segmentOf(mid);
+      ByteBuffer b = segments[s];
+      int i = (int) (mid - starts[s]), lim = b.limit();
+      while (i < lim && b.get(i) != '\n' && b.get(i) != '\r') {
+        i++;
+      }
+      int split = i == lim ? i : b.get(i) == '\r' && i + 1 < lim && b.get(i + 1) == '\n' ? i + 2 : i + 1;
+      long at = starts[s] + split;
+      if (at >= end) {
+        return null;
+      }
+      LineSpliterator prefix = new LineSpliterator(pos, at);
+      pos = at;
+      return prefix;
+    }
+
+    @Override public long estimateSize() {
+      return end - pos;
+    }
+
+    @Override public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+  }
+
+  /** @return the file's lines, as views of their bytes. */
+  public Stream<Line> lines() {
+    return StreamSupport.stream(new LineSpliterator(0, size), false);
+  }
+
+  /** @return the file's lines, decoded as they are consumed. */
+  public Stream<String> strings() {
+    return lines().map(Line::toString);
+  }
+
+  /** Closes the file channel. Mapped segments stay readable until they are collected. */
+  @Override public void close() {
+    OFnBlock.tryRun(ch::close);
+  }
+
+  @Override public String toString() {
+    return String.format("%s[size: %d, segments: %d]", getClass().getSimpleName(), size, segments.length);
+  }
+}
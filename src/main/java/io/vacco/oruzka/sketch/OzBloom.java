@@ -0,0 +1,138 @@
+package io.vacco.oruzka.sketch;
+
+import io.vacco.oruzka.core.*;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Blocked Bloom filter. Every key maps to a single 512-bit block (one cache line, 8 longs),
+ * and its <code>k</code> bits are set inside that block only, so a lookup touches one cache line.
+ * Keys are XXH64 values; the block comes from the high 32 bits, and in-block bit positions from
+ * double hashing over both 32-bit halves.
+ *
+ * Updates are lock free (CAS on the backing words), so a filter can be shared between threads.
+ */
+public class OzBloom {
+
+  public static final int BLOCK_BITS = 512;
+  private static final int BLOCK_WORDS = BLOCK_BITS / 64;
+
+  private final AtomicLongArray words;
+  private final int blocks, k;
+
+  public OzBloom(int blocks, int k) {
+    OzCheck.isTrue(blocks > 0 && k > 0 && k <= 16, "bloom.invalid.parameters");
+    OzCheck.isTrue((long) blocks * BLOCK_WORDS <= Integer.MAX_VALUE, "bloom.too.large");
+    this.blocks = blocks;
+    this.k = k;
+    this.words = new AtomicLongArray(blocks * BLOCK_WORDS);
+  }
+
+  /**
+   * @param expectedItems the expected number of distinct keys.
+   * @param fpp the target false positive probability, in <code>(0, 1)</code>.
+   * @return a filter sized for the given load. Blocking costs a slightly higher false
+   *         positive rate than a classic Bloom filter of the same size.
+   */
+  public static OzBloom of(long expectedItems, double fpp) {
+    OzCheck.isTrue(expectedItems > 0 && fpp > 0 && fpp < 1, "bloom.invalid.parameters");
+    double bits = -expectedItems * Math.log(fpp) / (Math.log(2) * Math.log(2));
+    long blocks = (long) Math.ceil(bits / BLOCK_BITS);
+    OzCheck.isTrue(blocks * BLOCK_WORDS <= Integer.MAX_VALUE, "bloom.too.large");
+    int k = (int) Math.max(1, Math.min(16, Math.round(bits / expectedItems * Math.log(2))));
+    return new OzBloom((int) blocks, k);
+  }
+
+  private int blockOf(long hash) {
+    return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+  }
+
+  /**
+   * @param hash an XXH64 key hash.
+   * @return <code>true</code> if the filter changed, i.e. the key was definitely not present before.
+   */
+  public boolean add(long hash) {
+    int base = blockOf(hash);
+    int g1 = (int) hash, g2 = (int) (hash >>> 32) | 1;
+    boolean changed = false;
+    for (int i = 0; i < k; i++) {
+      int bit = (g1 + i * g2) & (BLOCK_BITS - 1);
+      int w = base + (bit >>> 6);
+      long mask = 1L << bit;
+      long old;
+      while (((old = words.get(w)) & mask) == 0) {
+        if (words.compareAndSet(w, old, old | mask)) {
+          changed = true;
+          break;
+        }
+      }
+    }
+    return changed;
+  }
+
+  public boolean add(byte[] key) { return add(OzXxHash.hash64(key, 0, key.length, 0)); }
+  public boolean add(CharSequence key) { return add(OzXxHash.hashCharsUtf8(key, 0)); }
+
+  /**
+   * @param hash an XXH64 key hash.
+   * @return <code>false</code> if the key was never added, <code>true</code> if it probably was.
+   */
+  public boolean mightContain(long hash) {
+    int base = blockOf(hash);
+    int g1 = (int) hash, g2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < k; i++) {
+      int bit = (g1 + i * g2) & (BLOCK_BITS - 1);
+      if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean mightContain(byte[] key) { return mightContain(OzXxHash.hash64(key, 0, key.length, 0)); }
+  public boolean mightContain(CharSequence key) { return mightContain(OzXxHash.hashCharsUtf8(key, 0)); }
+
+  public OzBloom merge(OzBloom other) {
+    OzCheck.isTrue(blocks == other.blocks && k == other.k, "bloom.incompatible.merge");
+    for (int i = 0; i < words.length(); i++) {
+      long v = other.words.get(i);
+      if (v != 0) {
+        words.getAndAccumulate(i, v, (a, b) -> a | b);
+      }
+    }
+    return this;
+  }
+
+  public long bitCount() {
+    long n = 0;
+    for (int i = 0; i < words.length(); i++) {
+      n += Long.bitCount(words.get(i));
+    }
+    return n;
+  }
+
+  public int blocks() { return blocks; }
+  public int hashes() { return k; }
+
+  public void write(DataOutput out) {
+    OFnBlock.tryRun(() -> {
+      out.writeInt(blocks);
+      out.writeInt(k);
+      for (int i = 0; i < words.length(); i++) {
+        out.writeLong(words.get(i));
+      }
+    });
+  }
+
+  public static OzBloom read(DataInput in) {
+    return OFnSupplier.tryGet(() -> {
+      OzBloom b = new OzBloom(in.readInt(), in.readInt());
+      for (int i = 0; i < b.words.length(); i++) {
+        b.words.set(i, in.readLong());
+      }
+      return b;
+    });
+  }
+}
@@ -0,0 +1,106 @@
+package io.vacco.oruzka.sketch;
+
+import io.vacco.oruzka.core.*;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Count-Min frequency sketch: <code>depth</code> rows of <code>width</code> counters each, in a
+ * single flat array. A key's row counters are picked by double hashing over both 32-bit halves
+ * of its XXH64 value. Estimates never under count; with <code>width = e / epsilon</code> and
+ * <code>depth = ln(1 / delta)</code>, they over count by at most <code>epsilon * total</code>
+ * with probability <code>1 - delta</code>.
+ *
+ * Counter updates are atomic adds, so a sketch can be shared between threads.
+ */
+public class OzCountMin {
+
+  private final int depth, width, mask;
+  private final AtomicLongArray counters;
+  private final AtomicLong total = new AtomicLong();
+
+  /**
+   * @param depth the number of rows.
+   * @param width the number of counters per row. Rounded up to a power of two.
+   */
+  public OzCountMin(int depth, int width) {
+    OzCheck.isTrue(depth > 0 && depth <= 32 && width > 0 && width <= 1 << 30, "count.min.invalid.parameters");
+    this.depth = depth;
+    this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+    this.mask = this.width - 1;
+    OzCheck.isTrue((long) depth * this.width <= Integer.MAX_VALUE, "count.min.too.large");
+    this.counters = new AtomicLongArray(depth * this.width);
+  }
+
+  public static OzCountMin of(double epsilon, double delta) {
+    OzCheck.isTrue(epsilon > 0 && delta > 0 && delta < 1, "count.min.invalid.parameters");
+    return new OzCountMin((int) Math.ceil(Math.log(1 / delta)), (int) Math.ceil(Math.E / epsilon));
+  }
+
+  private int slot(int g1, int g2, int row) {
+    return row * width + ((g1 + row * g2) & mask);
+  }
+
+  public void add(long hash, long count) {
+    int g1 = (int) hash, g2 = (int) (hash >>> 32) | 1;
+    for (int r = 0; r < depth; r++) {
+      counters.addAndGet(slot(g1, g2, r), count);
+    }
+    total.addAndGet(count);
+  }
+
+  public void add(long hash) { add(hash, 1); }
+  public void add(byte[] key) { add(OzXxHash.hash64(key, 0, key.length, 0), 1); }
+  public void add(CharSequence key) { add(OzXxHash.hashCharsUtf8(key, 0), 1); }
+
+  public long estimate(long hash) {
+    int g1 = (int) hash, g2 = (int) (hash >>> 32) | 1;
+    long min = Long.MAX_VALUE;
+    for (int r = 0; r < depth; r++) {
+      min = Math.min(min, counters.get(slot(g1, g2, r)));
+    }
+    return min;
+  }
+
+  public long estimate(byte[] key) { return estimate(OzXxHash.hash64(key, 0, key.length, 0)); }
+  public long estimate(CharSequence key) { return estimate(OzXxHash.hashCharsUtf8(key, 0)); }
+
+  /** @return the sum of all counts added so far. */
+  public long total() { return total.get(); }
+
+  public OzCountMin merge(OzCountMin other) {
+    OzCheck.isTrue(depth == other.depth && width == other.width, "count.min.incompatible.merge");
+    for (int i = 0; i < counters.length(); i++) {
+      counters.addAndGet(i, other.counters.get(i));
+    }
+    total.addAndGet(other.total.get());
+    return this;
+  }
+
+  public int depth() { return depth; }
+  public int width() { return width; }
+
+  public void write(DataOutput out) {
+    OFnBlock.tryRun(() -> {
+      out.writeInt(depth);
+      out.writeInt(width);
+      out.writeLong(total.get());
+      for (int i = 0; i < counters.length(); i++) {
+        out.writeLong(counters.get(i));
+      }
+    });
+  }
+
+  public static OzCountMin read(DataInput in) {
+    return OFnSupplier.tryGet(() -> {
+      OzCountMin cm = new OzCountMin(in.readInt(), in.readInt());
+      cm.total.set(in.readLong());
+      for (int i = 0; i < cm.counters.length(); i++) {
+        cm.counters.set(i, in.readLong());
+      }
+      return cm;
+    });
+  }
+}
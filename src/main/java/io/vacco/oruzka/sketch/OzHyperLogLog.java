@@ -0,0 +1,129 @@
+package io.vacco.oruzka.sketch;
+
+import io.vacco.oruzka.core.*;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HyperLogLog cardinality estimator over 64-bit XXH64 hashes (as in HLL++, which removes the
+ * large range correction). Registers are 6 bits wide, packed ten per long. Estimates use
+ * Ertl's improved estimator ("New cardinality estimation algorithms for HyperLogLog sketches",
+ * 2017), which stays unbiased from small to large cardinalities without empirical bias tables.
+ *
+ * Updates are lock free (CAS on the backing words), so a sketch can be shared between threads.
+ * Memory use is about <code>0.8 * 2^p</code> bytes, standard error about <code>1.04 / sqrt(2^p)</code>.
+ */
+public class OzHyperLogLog {
+
+  private static final int REG_BITS = 6, REGS_PER_WORD = 10;
+  private static final long REG_MASK = (1L << REG_BITS) - 1;
+
+  private final int p, m, q;
+  private final AtomicLongArray words;
+
+  /** @param p the precision, between 4 and 18. */
+  public OzHyperLogLog(int p) {
+    OzCheck.isTrue(p >= 4 && p <= 18, "hll.invalid.precision");
+    this.p = p;
+    this.m = 1 << p;
+    this.q = 64 - p;
+    this.words = new AtomicLongArray((m + REGS_PER_WORD - 1) / REGS_PER_WORD);
+  }
+
+  public int register(int i) {
+    return (int) ((words.get(i / REGS_PER_WORD) >>> ((i % REGS_PER_WORD) * REG_BITS)) & REG_MASK);
+  }
+
+  private void max(int i, int value) {
+    int w = i / REGS_PER_WORD, shift = (i % REGS_PER_WORD) * REG_BITS;
+    long old;
+    while (((old = words.get(w)) >>> shift & REG_MASK) < value) {
+      long upd = (old & ~(REG_MASK << shift)) | ((long) value << shift);
+      if (words.compareAndSet(w, old, upd)) {
+        return;
+      }
+    }
+  }
+
+  public void add(long hash) {
+    int idx = (int) (hash >>> q);
+    long w = hash << p;
+    int rho = w == 0 ? q + 1 : Long.numberOfLeadingZeros(w) + 1;
+    max(idx, Math.min(rho, q + 1));
+  }
+
+  public void add(byte[] key) { add(OzXxHash.hash64(key, 0, key.length, 0)); }
+  public void add(CharSequence key) { add(OzXxHash.hashCharsUtf8(key, 0)); }
+
+  private static double sigma(double x) {
+    if (x == 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double y = 1, z = x, zPrev;
+    do {
+      x *= x;
+      zPrev = z;
+      z += x * y;
+      y += y;
+    } while (z != zPrev);
+    return z;
+  }
+
+  private static double tau(double x) {
+    if (x == 0 || x == 1) {
+      return 0;
+    }
+    double y = 1, z = 1 - x, zPrev;
+    do {
+      x = Math.sqrt(x);
+      zPrev = z;
+      y *= 0.5;
+      z -= (1 - x) * (1 - x) * y;
+    } while (z != zPrev);
+    return z / 3;
+  }
+
+  public long cardinality() {
+    int[] c = new int[q + 2];
+    for (int i = 0; i < m; i++) {
+      c[register(i)]++;
+    }
+    double z = m * tau(1 - (double) c[q + 1] / m);
+    for (int k = q; k >= 1; k--) {
+      z = 0.5 * (z + c[k]);
+    }
+    z += m * sigma((double) c[0] / m);
+    return Math.round(m / (2 * Math.log(2)) * m / z);
+  }
+
+  public OzHyperLogLog merge(OzHyperLogLog other) {
+    OzCheck.isTrue(p == other.p, "hll.incompatible.merge");
+    for (int i = 0; i < m; i++) {
+      max(i, other.register(i));
+    }
+    return this;
+  }
+
+  public int precision() { return p; }
+
+  public void write(DataOutput out) {
+    OFnBlock.tryRun(() -> {
+      out.writeByte(p);
+      for (int i = 0; i < words.length(); i++) {
+        out.writeLong(words.get(i));
+      }
+    });
+  }
+
+  public static OzHyperLogLog read(DataInput in) {
+    return OFnSupplier.tryGet(() -> {
+      OzHyperLogLog h = new OzHyperLogLog(in.readUnsignedByte());
+      for (int i = 0; i < h.words.length(); i++) {
+        h.words.set(i, in.readLong());
+      }
+      return h;
+    });
+  }
+}
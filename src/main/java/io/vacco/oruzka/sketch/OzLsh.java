@@ -0,0 +1,98 @@
+package io.vacco.oruzka.sketch;
+
+import io.vacco.oruzka.core.OzCheck;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.*;
+
+/**
+ * Locality sensitive hashing index over MinHash signatures. Signatures are split into
+ * <code>bands</code> bands of <code>rows</code> values, and each band is hashed into a bucket.
+ * Documents sharing at least one bucket are candidate pairs, which for a similarity
+ * <code>s</code> happens with probability <code>1 - (1 - s^rows)^bands</code>.
+ *
+ * Lookups only touch one bucket per band, so finding candidates does not compare against every
+ * indexed document. Not thread safe: index documents from a single thread, or synchronize.
+ */
+public class OzLsh {
+
+  @FunctionalInterface
+  public interface PairSink {
+    void onPair(int docA, int docB);
+  }
+
+  public final int bands, rows;
+  private final List<Map<Long, int[]>> buckets = new ArrayList<>();
+
+  public OzLsh(int bands, int rows) {
+    OzCheck.isTrue(bands > 0 && rows > 0, "lsh.invalid.parameters");
+    this.bands = bands;
+    this.rows = rows;
+    for (int b = 0; b < bands; b++) {
+      buckets.add(new HashMap<>());
+    }
+  }
+
+  private long bandKey(long[] sig, int band) {
+    long h = band;
+    for (int r = band * rows, end = r + rows; r < end; r++) {
+      h = OzXxHash.mergeRound64(h, sig[r]);
+    }
+    return OzXxHash.avalanche64(h);
+  }
+
+  private static int[] append(int[] ids, int id) {
+    if (ids == null) {
+      ids = new int[] {0, 0};
+    } else if (ids[0] + 1 == ids.length) {
+      ids = Arrays.copyOf(ids, ids.length * 2);
+    }
+    ids[++ids[0]] = id;
+    return ids;
+  }
+
+  public void add(int docId, long[] sig) {
+    OzCheck.isTrue(sig.length >= bands * rows, "lsh.signature.too.short");
+    for (int b = 0; b < bands; b++) {
+      buckets.get(b).compute(bandKey(sig, b), (k, ids) -> append(ids, docId));
+    }
+  }
+
+  /**
+   * @param sig a signature.
+   * @return the sorted, distinct ids of the indexed documents sharing a bucket with <code>sig</code>.
+   */
+  public int[] candidates(long[] sig) {
+    BitSet out = new BitSet();
+    for (int b = 0; b < bands; b++) {
+      int[] ids = buckets.get(b).get(bandKey(sig, b));
+      if (ids != null) {
+        for (int i = 1; i <= ids[0]; i++) {
+          out.set(ids[i]);
+        }
+      }
+    }
+    return out.stream().toArray();
+  }
+
+  /**
+   * Emits every distinct candidate pair once, with <code>docA &lt; docB</code>.
+   *
+   * @param sink the pair consumer.
+   */
+  public void candidatePairs(PairSink sink) {
+    Set<Long> seen = new HashSet<>();
+    for (Map<Long, int[]> band : buckets) {
+      for (int[] ids : band.values()) {
+        for (int i = 1; i <= ids[0]; i++) {
+          for (int j = i + 1; j <= ids[0]; j++) {
+            int a = Math.min(ids[i], ids[j]), b = Math.max(ids[i], ids[j]);
+            if (a != b && seen.add(((long) a << 32) | (b & 0xFFFFFFFFL))) {
+              sink.onPair(a, b);
+            }
+          }
+        }
+      }
+    }
+  }
+}
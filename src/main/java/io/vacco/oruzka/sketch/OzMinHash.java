@@ -0,0 +1,66 @@
+package io.vacco.oruzka.sketch;
+
+import io.vacco.oruzka.core.OzCheck;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * MinHash signatures, estimating the Jaccard similarity of token sets. Each token is hashed
+ * twice with seeded XXH64 (<code>h1</code>, <code>h2</code>), and the <code>k</code> permutations
+ * are derived by double hashing as <code>avalanche(h1 + i * h2)</code>, instead of running
+ * <code>k</code> independent hash functions per token.
+ *
+ * Instances hold no mutable state, so one instance can sign many documents in parallel.
+ * Updating a signature does not allocate.
+ */
+public class OzMinHash {
+
+  public final int k;
+  private final long seed;
+
+  public OzMinHash(int k, long seed) {
+    OzCheck.isTrue(k > 0, "min.hash.invalid.size");
+    this.k = k;
+    this.seed = seed;
+  }
+
+  public long[] newSignature() {
+    long[] sig = new long[k];
+    Arrays.fill(sig, Long.MAX_VALUE);
+    return sig;
+  }
+
+  public long[] update(long[] sig, long h1, long h2) {
+    for (int i = 0; i < k; i++) {
+      long h = OzXxHash.avalanche64(h1 + i * h2);
+      if (h < sig[i]) {
+        sig[i] = h;
+      }
+    }
+    return sig;
+  }
+
+  public long[] update(long[] sig, CharSequence token) {
+    return update(sig, OzXxHash.hashCharsUtf8(token, seed), OzXxHash.hashCharsUtf8(token, ~seed) | 1);
+  }
+
+  public long[] of(Stream<? extends CharSequence> tokens) {
+    long[] sig = newSignature();
+    tokens.forEach(t -> update(sig, t));
+    return sig;
+  }
+
+  /** @return the estimated Jaccard similarity of the token sets behind two signatures. */
+  public static double similarity(long[] a, long[] b) {
+    OzCheck.isTrue(a.length == b.length, "min.hash.size.mismatch");
+    int same = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == b[i]) {
+        same++;
+      }
+    }
+    return (double) same / a.length;
+  }
+}
@@ -0,0 +1,54 @@
+package io.vacco.oruzka.sketch;
+
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.stream.Stream;
+
+/**
+ * 64-bit SimHash fingerprints, where near-duplicate documents have fingerprints with small
+ * Hamming distances. Token weights accumulate into 64 per-bit counters, one array per document;
+ * updating the counters does not allocate.
+ */
+public class OzSimHash {
+
+  private final long seed;
+
+  public OzSimHash(long seed) {
+    this.seed = seed;
+  }
+
+  public static int[] newAccumulator() {
+    return new int[64];
+  }
+
+  public int[] update(int[] acc, long hash, int weight) {
+    for (int i = 0; i < 64; i++) {
+      acc[i] += ((hash >>> i) & 1) != 0 ? weight : -weight;
+    }
+    return acc;
+  }
+
+  public int[] update(int[] acc, CharSequence token, int weight) {
+    return update(acc, OzXxHash.hashCharsUtf8(token, seed), weight);
+  }
+
+  public static long fingerprint(int[] acc) {
+    long f = 0;
+    for (int i = 0; i < 64; i++) {
+      if (acc[i] > 0) {
+        f |= 1L << i;
+      }
+    }
+    return f;
+  }
+
+  public long of(Stream<? extends CharSequence> tokens) {
+    int[] acc = newAccumulator();
+    tokens.forEach(t -> update(acc, t, 1));
+    return fingerprint(acc);
+  }
+
+  public static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+}
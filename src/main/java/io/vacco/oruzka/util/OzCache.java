@@ -0,0 +1,485 @@
+package io.vacco.oruzka.util;
+
+import io.vacco.oruzka.core.*;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded concurrent cache with W-TinyLFU eviction.
+ *
+ * New entries enter a small LRU window (1% of the maximum weight). Entries leaving the window
+ * compete with the main space's LRU victim, and only the one seen more often (according to a
+ * 4-bit Count-Min frequency sketch which halves itself periodically) stays. The main space is a
+ * segmented LRU, where entries read again move from probation to the protected segment.
+ *
+ * Reads never lock: they are recorded in lossy striped ring buffers, which are replayed against
+ * the eviction policy by whichever thread acquires the policy lock next. Writes take the policy
+ * lock. Loads through {@link #get(Object, OFn)} run at most once per key at a time; concurrent
+ * callers for the same key wait for the first load instead of repeating it.
+ *
+ * Configure the cache (weigher, expiration, ticker) before sharing it between threads.
+ */
+public class OzCache<K, V> {
+
+  @FunctionalInterface
+  public interface Weigher<K, V> { int weigh(K key, V value); }
+
+  private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2, DEAD = -1;
+  private static final int BUFFER_SIZE = 16, BUFFER_MASK = BUFFER_SIZE - 1;
+  private static final int STRIPES = Integer.highestOneBit(
+      Math.min(64, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+
+  private static final class Node<K, V> {
+    final K key;
+    volatile V value;
+    volatile long writeNanos, accessNanos;
+    int weight, queue;
+    Node<K, V> prev, next, wPrev, wNext;
+    Node(K key) { this.key = key; }
+  }
+
+  /** Access ordered intrusive list, head is the least recently used entry. */
+  private static final class AccessQueue<K, V> {
+    Node<K, V> head, tail;
+    long weight;
+    void addLast(Node<K, V> n) {
+      n.prev = tail;
+      n.next = null;
+      if (tail == null) { head = n; } else { tail.next = n; }
+      tail = n;
+      weight += n.weight;
+    }
+    void remove(Node<K, V> n) {
+      if (n.prev == null) { head = n.next; } else { n.prev.next = n.next; }
+      if (n.next == null) { tail = n.prev; } else { n.next.prev = n.prev; }
+      n.prev = n.next = null;
+      weight -= n.weight;
+    }
+    void moveToBack(Node<K, V> n) {
+      if (n != tail) {
+        remove(n);
+        addLast(n);
+      }
+    }
+  }
+
+  /** Write ordered intrusive list, for expire-after-write. */
+  private static final class WriteQueue<K, V> {
+    Node<K, V> head, tail;
+    void addLast(Node<K, V> n) {
+      n.wPrev = tail;
+      n.wNext = null;
+      if (tail == null) { head = n; } else { tail.wNext = n; }
+      tail = n;
+    }
+    void remove(Node<K, V> n) {
+      if (n.wPrev == null) { head = n.wNext; } else { n.wPrev.wNext = n.wNext; }
+      if (n.wNext == null) { tail = n.wPrev; } else { n.wNext.wPrev = n.wPrev; }
+      n.wPrev = n.wNext = null;
+    }
+  }
+
+  /** Lossy ring buffer of recently read nodes. Many producers, one (locked) consumer. */
+  private static final class ReadBuffer<K, V> {
+    final AtomicReferenceArray<Node<K, V>> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+    final AtomicLong writes = new AtomicLong();
+    volatile long reads;
+    /** @return the number of pending reads, or -1 if the read was dropped. */
+    long offer(Node<K, V> n) {
+      long w = writes.get(), pending = w - reads;
+      if (pending >= BUFFER_SIZE || !writes.compareAndSet(w, w + 1)) {
+        return -1;
+      }
+      slots.lazySet((int) (w & BUFFER_MASK), n);
+      return pending + 1;
+    }
+  }
+
+  /** Count-Min sketch of 4-bit counters, 16 per word, 4 counters per key. */
+  private static final class Frequency {
+    final long[] table;
+    final int mask, sampleSize;
+    int additions;
+    Frequency(long capacity) {
+      int keys = (int) Math.max(16, Math.min(capacity, 1 << 20));
+      int counters = (Integer.highestOneBit(keys - 1) << 1) * 4;
+      this.table = new long[counters >>> 4];
+      this.mask = counters - 1;
+      this.sampleSize = 10 * keys;
+    }
+    static long spread(Object key) {
+      return OzXxHash.avalanche64(key.hashCode());
+    }
+    int frequency(Object key) {
+      long h = spread(key);
+      int h1 = (int) h, h2 = (int) (h >>> 32) | 1, f = 15;
+      for (int i = 0; i < 4; i++) {
+        int c = (h1 + i * h2) & mask;
+        f = Math.min(f, (int) (table[c >>> 4] >>> ((c & 15) << 2)) & 15);
+      }
+      return f;
+    }
+    void increment(Object key) {
+      long h = spread(key);
+      int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        int c = (h1 + i * h2) & mask, shift = (c & 15) << 2;
+        if (((table[c >>> 4] >>> shift) & 15) != 15) {
+          table[c >>> 4] += 1L << shift;
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+        }
+        additions /= 2;
+      }
+    }
+  }
+
+  private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, Load<V>> loading = new ConcurrentHashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AccessQueue<K, V> window = new AccessQueue<>(), probation = new AccessQueue<>(), protect = new AccessQueue<>();
+  private final WriteQueue<K, V> writeOrder = new WriteQueue<>();
+  private final ReadBuffer<K, V>[] buffers;
+  private final Frequency sketch;
+  private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+  public final long maximumWeight;
+  private final long windowMax, mainMax, protectedMax;
+
+  private Weigher<? super K, ? super V> weigher = (k, v) -> 1;
+  private long expireAfterWriteNanos, expireAfterAccessNanos;
+  private LongSupplier ticker = System::nanoTime;
+
+  /** A pending load, owned by the thread running its loader. */
+  private static final class Load<V> extends CompletableFuture<V> {
+    final Thread owner = Thread.currentThread();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> ReadBuffer<K, V>[] newBuffers(int n) {
+    ReadBuffer<K, V>[] out = (ReadBuffer<K, V>[]) new ReadBuffer<?, ?>[n];
+    for (int i = 0; i < n; i++) {
+      out[i] = new ReadBuffer<>();
+    }
+    return out;
+  }
+
+  public OzCache(long maximumWeight) {
+    OzCheck.isTrue(maximumWeight > 0, "cache.invalid.maximum.weight");
+    this.maximumWeight = maximumWeight;
+    this.windowMax = Math.max(1, maximumWeight / 100);
+    this.mainMax = maximumWeight - windowMax;
+    this.protectedMax = mainMax * 4 / 5;
+    this.sketch = new Frequency(maximumWeight);
+    this.buffers = newBuffers(STRIPES);
+  }
+
+  public OzCache<K, V> withWeigher(Weigher<? super K, ? super V> weigher) {
+    this.weigher = OzCheck.notNull(weigher, "cache.null.weigher");
+    return this;
+  }
+
+  public OzCache<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+    this.expireAfterWriteNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  public OzCache<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+    this.expireAfterAccessNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  /** @param ticker a nanosecond time source, for expiration. */
+  public OzCache<K, V> withTicker(LongSupplier ticker) {
+    this.ticker = OzCheck.notNull(ticker, "cache.null.ticker");
+    return this;
+  }
+
+  private long now() {
+    return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 ? ticker.getAsLong() : 0;
+  }
+
+  private boolean expired(Node<K, V> n, long now) {
+    return (expireAfterWriteNanos > 0 && now - n.writeNanos >= expireAfterWriteNanos)
+        || (expireAfterAccessNanos > 0 && now - n.accessNanos >= expireAfterAccessNanos);
+  }
+
+  private V lookup(K key) {
+    Node<K, V> n = data.get(key);
+    if (n == null) {
+      return null;
+    }
+    long now = now();
+    if (expired(n, now)) {
+      tryMaintenance();
+      return null;
+    }
+    if (expireAfterAccessNanos > 0) {
+      n.accessNanos = now;
+    }
+    int stripe = (int) OzXxHash.avalanche64(Thread.currentThread().getId()) & (STRIPES - 1);
+    if (buffers[stripe].offer(n) >= BUFFER_SIZE / 2) {
+      tryMaintenance();
+    }
+    return n.value;
+  }
+
+  public V getIfPresent(K key) {
+    V v = lookup(key);
+    (v != null ? hits : misses).increment();
+    return v;
+  }
+
+  /**
+   * Returns the cached value for a key, loading it if needed. Concurrent calls for the same
+   * missing key share a single load.
+   *
+   * @param key the key.
+   * @param loader the value loader. Must not return null.
+   * @return the cached or loaded value.
+   * @throws IllegalStateException if the loader fails, in this or in a concurrent call, or if
+   *         the loader calls this method for the same key.
+   */
+  public V get(K key, OFn<? super K, ? extends V> loader) {
+    V v = getIfPresent(key);
+    if (v != null) {
+      return v;
+    }
+    Load<V> f = new Load<>(), prev = loading.putIfAbsent(key, f);
+    if (prev != null) {
+      OzCheck.isTrue(prev.owner != Thread.currentThread(), "cache.recursive.load");
+      try {
+        return prev.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof IllegalStateException
+            ? (IllegalStateException) e.getCause() : new IllegalStateException(e.getCause());
+      }
+    }
+    try {
+      v = lookup(key);
+      if (v == null) {
+        v = OzCheck.notNull(OFn.tryApply(key, loader), "cache.null.value");
+        put(key, v);
+      }
+      f.complete(v);
+      return v;
+    } catch (RuntimeException e) {
+      f.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, f);
+    }
+  }
+
+  public void put(K key, V value) {
+    OzCheck.notNull(key, "cache.null.key");
+    OzCheck.notNull(value, "cache.null.value");
+    int weight = weigher.weigh(key, value);
+    OzCheck.isTrue(weight >= 0, "cache.negative.weight");
+    lock.lock();
+    try {
+      long now = now();
+      Node<K, V> fresh = new Node<>(key), n;
+      fresh.value = value;
+      fresh.writeNanos = now;
+      fresh.accessNanos = now;
+      if ((n = data.putIfAbsent(key, fresh)) == null) {
+        n = fresh;
+        n.weight = weight;
+        n.queue = WINDOW;
+        window.addLast(n);
+        writeOrder.addLast(n);
+        sketch.increment(key);
+      } else {
+        queueOf(n).remove(n);
+        n.weight = weight;
+        queueOf(n).addLast(n);
+        writeOrder.remove(n);
+        writeOrder.addLast(n);
+        onAccess(n);
+      }
+      n.value = value;
+      n.writeNanos = now;
+      n.accessNanos = now;
+      maintenance(now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void invalidate(K key) {
+    lock.lock();
+    try {
+      Node<K, V> n = data.get(key);
+      if (n != null) {
+        unlink(n);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      for (Node<K, V> n : data.values()) {
+        unlink(n);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Applies pending reads, expirations and evictions. */
+  public void cleanUp() {
+    lock.lock();
+    try {
+      maintenance(now());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void tryMaintenance() {
+    if (lock.tryLock()) {
+      try {
+        maintenance(now());
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private AccessQueue<K, V> queueOf(Node<K, V> n) {
+    return n.queue == WINDOW ? window : n.queue == PROBATION ? probation : protect;
+  }
+
+  private void maintenance(long now) {
+    drainReads();
+    expire(now);
+    evict();
+  }
+
+  private void drainReads() {
+    for (ReadBuffer<K, V> b : buffers) {
+      long r = b.reads, w = b.writes.get();
+      for (; r < w; r++) {
+        int i = (int) (r & BUFFER_MASK);
+        Node<K, V> n = b.slots.get(i);
+        if (n == null) {
+          break;
+        }
+        b.slots.lazySet(i, null);
+        if (n.queue != DEAD) {
+          onAccess(n);
+        }
+      }
+      b.reads = r;
+    }
+  }
+
+  private void onAccess(Node<K, V> n) {
+    sketch.increment(n.key);
+    if (n.queue == PROBATION) {
+      probation.remove(n);
+      n.queue = PROTECTED;
+      protect.addLast(n);
+      while (protect.weight > protectedMax && protect.head != n) {
+        Node<K, V> d = protect.head;
+        protect.remove(d);
+        d.queue = PROBATION;
+        probation.addLast(d);
+      }
+    } else {
+      queueOf(n).moveToBack(n);
+    }
+  }
+
+  private void expire(long now) {
+    if (expireAfterAccessNanos > 0) {
+      expire(window, now);
+      expire(probation, now);
+      expire(protect, now);
+    }
+    if (expireAfterWriteNanos > 0) {
+      while (writeOrder.head != null && now - writeOrder.head.writeNanos >= expireAfterWriteNanos) {
+        unlink(writeOrder.head);
+      }
+    }
+  }
+
+  private void expire(AccessQueue<K, V> q, long now) {
+    while (q.head != null && now - q.head.accessNanos >= expireAfterAccessNanos) {
+      unlink(q.head);
+    }
+  }
+
+  private void evict() {
+    while (window.weight > windowMax && window.head != null) {
+      Node<K, V> c = window.head;
+      window.remove(c);
+      c.queue = PROBATION;
+      probation.addLast(c);
+      admit(c);
+    }
+    while (window.weight + probation.weight + protect.weight > maximumWeight) {
+      Node<K, V> v = probation.head != null ? probation.head : protect.head != null ? protect.head : window.head;
+      unlink(v);
+      evictions.increment();
+    }
+  }
+
+  /** Evicts either a candidate leaving the window, or the main space's victim. */
+  private void admit(Node<K, V> c) {
+    int cf = -1;
+    while (probation.weight + protect.weight > mainMax) {
+      Node<K, V> v = probation.head != c ? probation.head : protect.head;
+      if (cf == -1 && v != null) {
+        cf = sketch.frequency(c.key);
+      }
+      if (v == null || cf <= sketch.frequency(v.key)) {
+        unlink(c);
+        evictions.increment();
+        return;
+      }
+      unlink(v);
+      evictions.increment();
+    }
+  }
+
+  private void unlink(Node<K, V> n) {
+    data.remove(n.key, n);
+    queueOf(n).remove(n);
+    writeOrder.remove(n);
+    n.queue = DEAD;
+  }
+
+  public int size() { return data.size(); }
+
+  public long weight() {
+    lock.lock();
+    try {
+      return window.weight + probation.weight + protect.weight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long hits() { return hits.sum(); }
+  public long misses() { return misses.sum(); }
+  public long evictions() { return evictions.sum(); }
+
+  public double hitRatio() {
+    long h = hits(), t = h + misses();
+    return t == 0 ? 1 : (double) h / t;
+  }
+}
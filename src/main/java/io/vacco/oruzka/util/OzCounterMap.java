@@ -0,0 +1,173 @@
+package io.vacco.oruzka.util;
+
+import io.vacco.oruzka.core.OzCheck;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent per-key event counters, striped like {@link java.util.concurrent.atomic.LongAdder}
+ * but without an object per key. Each key owns a slot, and each slot is a column of
+ * long cells, one per stripe. Threads add to the cell of their own stripe, and reads sum the
+ * column. Cells live in blocks of {@value #BLOCK} slots, with each stripe's row padded to a
+ * cache line boundary, so threads on different stripes never write to the same line.
+ *
+ * Enum counters map constants to slots by ordinal, so counting an enum key needs no lookup.
+ */
+public class OzCounterMap<K> {
+
+  static final int BLOCK = 64, PAD = 8;
+  static final int STRIPES = Integer.highestOneBit(
+      Math.min(256, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+
+  private final ConcurrentHashMap<K, Integer> slots = new ConcurrentHashMap<>();
+  private final Class<?> enumType;
+  /** Slot keys, grown by doubling. Writes are published by the volatile write of <code>count</code>. */
+  private Object[] keys = new Object[BLOCK];
+  private volatile int count;
+  private volatile AtomicLongArray[] blocks = new AtomicLongArray[0];
+
+  public OzCounterMap() {
+    this.enumType = null;
+  }
+
+  private OzCounterMap(Class<K> enumType) {
+    this.enumType = enumType;
+    for (K key : enumType.getEnumConstants()) {
+      newSlot(key);
+    }
+  }
+
+  /** @return counters with every constant of <code>type</code> pre-registered. */
+  public static <E extends Enum<E>> OzCounterMap<E> of(Class<E> type) {
+    return new OzCounterMap<>(type);
+  }
+
+  private static int stripe() {
+    return (int) OzXxHash.avalanche64(Thread.currentThread().getId()) & (STRIPES - 1);
+  }
+
+  private static int cell(int slot, int stripe) {
+    return stripe * (BLOCK + PAD) + (slot & (BLOCK - 1));
+  }
+
+  @SafeVarargs
+  public final OzCounterMap<K> register(K ... keys) {
+    for (K key : keys) {
+      slotOf(key);
+    }
+    return this;
+  }
+
+  /**
+   * @param key a key, which gets a slot if it has none yet.
+   * @return the key's slot, for use with {@link #add(int, long)}.
+   */
+  public int slotOf(K key) {
+    if (enumType != null && enumType.isInstance(key)) {
+      return ((Enum<?>) key).ordinal();
+    }
+    Integer slot = slots.get(key);
+    return slot != null ? slot : newSlot(key);
+  }
+
+  private synchronized int newSlot(K key) {
+    OzCheck.notNull(key, "counter.null.key");
+    Integer slot = slots.get(key);
+    if (slot != null) {
+      return slot;
+    }
+    int s = count;
+    if (s == keys.length) {
+      keys = Arrays.copyOf(keys, s * 2);
+    }
+    keys[s] = key;
+    if (s / BLOCK == blocks.length) {
+      AtomicLongArray[] b1 = Arrays.copyOf(blocks, blocks.length + 1);
+      b1[blocks.length] = new AtomicLongArray(STRIPES * (BLOCK + PAD));
+      blocks = b1;
+    }
+    count = s + 1;
+    slots.put(key, s);
+    return s;
+  }
+
+  public void add(int slot, long delta) {
+    blocks[slot / BLOCK].getAndAdd(cell(slot, stripe()), delta);
+  }
+
+  public void add(K key, long delta) {
+    add(slotOf(key), delta);
+  }
+
+  public void increment(K key) {
+    add(slotOf(key), 1);
+  }
+
+  private long sum(int slot, boolean reset) {
+    AtomicLongArray b = blocks[slot / BLOCK];
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += reset ? b.getAndSet(cell(slot, i), 0) : b.get(cell(slot, i));
+    }
+    return sum;
+  }
+
+  public long sum(K key) {
+    Integer slot = enumType != null && enumType.isInstance(key)
+        ? Integer.valueOf(((Enum<?>) key).ordinal()) : slots.get(key);
+    return slot != null ? sum(slot, false) : 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<K, Long> snapshot(boolean reset) {
+    int n = count;
+    Object[] k = keys;
+    Map<K, Long> out = new LinkedHashMap<>();
+    for (int i = 0; i < n; i++) {
+      out.put((K) k[i], sum(i, reset));
+    }
+    return out;
+  }
+
+  /** @return every registered key and its current count. */
+  public Map<K, Long> snapshot() {
+    return snapshot(false);
+  }
+
+  /**
+   * Reads and clears every counter. Each cell is read and zeroed atomically, so increments
+   * racing with this call are counted either in this snapshot or in the next one, never lost.
+   *
+   * @return every registered key and its count since the previous reset.
+   */
+  public Map<K, Long> snapshotAndReset() {
+    return snapshot(true);
+  }
+
+  /**
+   * @param k the number of keys to return.
+   * @return up to <code>k</code> keys with the highest counts, in descending count order.
+   */
+  public List<Map.Entry<K, Long>> top(int k) {
+    OzCheck.isTrue(k >= 0, "counter.invalid.top.k");
+    PriorityQueue<Map.Entry<K, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+    for (Map.Entry<K, Long> e : snapshot().entrySet()) {
+      if (heap.size() < k) {
+        heap.add(e);
+      } else if (k > 0 && e.getValue() > heap.peek().getValue()) {
+        heap.poll();
+        heap.add(e);
+      }
+    }
+    List<Map.Entry<K, Long>> out = new ArrayList<>(heap);
+    out.sort(Map.Entry.<K, Long>comparingByValue().reversed());
+    return out;
+  }
+
+  public int size() {
+    return count;
+  }
+}
@@ -0,0 +1,151 @@
+package io.vacco.oruzka.util;
+
+import io.vacco.oruzka.core.OzCheck;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing <code>int</code> to <code>int</code> map, with linear probing over two
+ * parallel primitive arrays. Key <code>0</code> marks empty slots, so its mapping (if any) is
+ * stored apart from the table. Keys are mixed with the XXH32 finalizer, and removals shift
+ * later entries back instead of leaving tombstones. Not thread safe.
+ */
+public class OzIntIntMap {
+
+  @FunctionalInterface
+  public interface Entries { void accept(int key, int value); }
+
+  private int[] keys, values;
+  private int mask, size, resizeAt;
+  private boolean hasZero;
+  private int zeroValue;
+
+  public OzIntIntMap(int expectedSize) {
+    alloc(OzLongLongMap.capacityFor(expectedSize));
+  }
+
+  public OzIntIntMap() {
+    this(8);
+  }
+
+  private void alloc(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    resizeAt = (int) (capacity * OzLongLongMap.LOAD_FACTOR);
+  }
+
+  private int slot(int key) {
+    return OzXxHash.avalanche32(key) & mask;
+  }
+
+  private int indexOf(int key) {
+    for (int i = slot(key); ; i = (i + 1) & mask) {
+      int k = keys[i];
+      if (k == key) { return i; }
+      if (k == 0) { return -i - 1; }
+    }
+  }
+
+  public int get(int key, int missing) {
+    if (key == 0) { return hasZero ? zeroValue : missing; }
+    int i = indexOf(key);
+    return i >= 0 ? values[i] : missing;
+  }
+
+  public int get(int key) {
+    return get(key, 0);
+  }
+
+  public boolean containsKey(int key) {
+    return key == 0 ? hasZero : indexOf(key) >= 0;
+  }
+
+  /**
+   * @param key the key.
+   * @param value the value.
+   * @return <code>true</code> if the key was not mapped before.
+   */
+  public boolean put(int key, int value) {
+    if (key == 0) {
+      boolean added = !hasZero;
+      hasZero = true;
+      zeroValue = value;
+      if (added) { size++; }
+      return added;
+    }
+    int i = indexOf(key);
+    if (i >= 0) {
+      values[i] = value;
+      return false;
+    }
+    i = -i - 1;
+    keys[i] = key;
+    values[i] = value;
+    if (++size >= resizeAt) { rehash(); }
+    return true;
+  }
+
+  /** @return the updated value, after adding <code>delta</code> to the current value (or 0). */
+  public int addTo(int key, int delta) {
+    int v = get(key, 0) + delta;
+    put(key, v);
+    return v;
+  }
+
+  public boolean remove(int key) {
+    if (key == 0) {
+      boolean removed = hasZero;
+      hasZero = false;
+      zeroValue = 0;
+      if (removed) { size--; }
+      return removed;
+    }
+    int i = indexOf(key);
+    if (i < 0) { return false; }
+    for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+      int s = slot(keys[j]);
+      if (((j - s) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = 0;
+    values[i] = 0;
+    size--;
+    return true;
+  }
+
+  private void rehash() {
+    OzCheck.isTrue(keys.length < OzLongLongMap.MAX_CAPACITY, "map.too.large");
+    int[] k0 = keys, v0 = values;
+    alloc(keys.length << 1);
+    for (int i = 0; i < k0.length; i++) {
+      if (k0[i] != 0) {
+        int j = -indexOf(k0[i]) - 1;
+        keys[j] = k0[i];
+        values[j] = v0[i];
+      }
+    }
+  }
+
+  public void forEach(Entries fn) {
+    if (hasZero) { fn.accept(0, zeroValue); }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) { fn.accept(keys[i], values[i]); }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(values, 0);
+    hasZero = false;
+    zeroValue = 0;
+    size = 0;
+  }
+
+  public int size() { return size; }
+  public boolean isEmpty() { return size == 0; }
+}
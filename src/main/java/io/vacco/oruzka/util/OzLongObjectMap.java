@@ -0,0 +1,155 @@
+package io.vacco.oruzka.util;
+
+import io.vacco.oruzka.core.OzCheck;
+import io.vacco.oruzka.hash.OzXxHash;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Open addressing <code>long</code> to object map, with linear probing over a primitive key
+ * array and a parallel value array. Key <code>0</code> marks empty slots, so its mapping (if
+ * any) is stored apart from the table. Keys are mixed with the XXH64 finalizer, and removals
+ * shift later entries back instead of leaving tombstones. Values may not be null. Not thread safe.
+ */
+public class OzLongObjectMap<V> {
+
+  @FunctionalInterface
+  public interface Entries<V> { void accept(long key, V value); }
+
+  private long[] keys;
+  private Object[] values;
+  private int mask, size, resizeAt;
+  private V zeroValue;
+
+  public OzLongObjectMap(int expectedSize) {
+    alloc(OzLongLongMap.capacityFor(expectedSize));
+  }
+
+  public OzLongObjectMap() {
+    this(8);
+  }
+
+  private void alloc(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    resizeAt = (int) (capacity * OzLongLongMap.LOAD_FACTOR);
+  }
+
+  private int slot(long key) {
+    return (int) OzXxHash.avalanche64(key) & mask;
+  }
+
+  private int indexOf(long key) {
+    for (int i = slot(key); ; i = (i + 1) & mask) {
+      long k = keys[i];
+      if (k == key) { return i; }
+      if (k == 0) { return -i - 1; }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    if (key == 0) { return zeroValue; }
+    int i = indexOf(key);
+    return i >= 0 ? (V) values[i] : null;
+  }
+
+  public boolean containsKey(long key) {
+    return key == 0 ? zeroValue != null : indexOf(key) >= 0;
+  }
+
+  /**
+   * @param key the key.
+   * @param value the value.
+   * @return the previous value, or <code>null</code>.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    OzCheck.notNull(value, "map.null.value");
+    if (key == 0) {
+      V prev = zeroValue;
+      zeroValue = value;
+      if (prev == null) { size++; }
+      return prev;
+    }
+    int i = indexOf(key);
+    if (i >= 0) {
+      V prev = (V) values[i];
+      values[i] = value;
+      return prev;
+    }
+    i = -i - 1;
+    keys[i] = key;
+    values[i] = value;
+    if (++size >= resizeAt) { rehash(); }
+    return null;
+  }
+
+  public V computeIfAbsent(long key, LongFunction<V> fn) {
+    V v = get(key);
+    if (v == null) {
+      v = fn.apply(key);
+      if (v != null) { put(key, v); }
+    }
+    return v;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    if (key == 0) {
+      V prev = zeroValue;
+      zeroValue = null;
+      if (prev != null) { size--; }
+      return prev;
+    }
+    int i = indexOf(key);
+    if (i < 0) { return null; }
+    V prev = (V) values[i];
+    for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+      int s = slot(keys[j]);
+      if (((j - s) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = 0;
+    values[i] = null;
+    size--;
+    return prev;
+  }
+
+  private void rehash() {
+    OzCheck.isTrue(keys.length < OzLongLongMap.MAX_CAPACITY, "map.too.large");
+    long[] k0 = keys;
+    Object[] v0 = values;
+    alloc(keys.length << 1);
+    for (int i = 0; i < k0.length; i++) {
+      if (k0[i] != 0) {
+        int j = -indexOf(k0[i]) - 1;
+        keys[j] = k0[i];
+        values[j] = v0[i];
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public void forEach(Entries<? super V> fn) {
+    if (zeroValue != null) { fn.accept(0, zeroValue); }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) { fn.accept(keys[i], (V) values[i]); }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(values, null);
+    zeroValue = null;
+    size = 0;
+  }
+
+  public int size() { return size; }
+  public boolean isEmpty() { return size == 0; }
+}
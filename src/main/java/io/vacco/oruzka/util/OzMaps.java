@@ -1,5 +1,7 @@
 package io.vacco.oruzka.util;
 
+import io.vacco.oruzka.core.OzCheck;
+
 import java.util.*;
 import java.util.stream.*;
 
@@ -13,9 +15,31 @@ public class OzMaps {
     return entries.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
   }
 
+  /**
+   * @param entries the map's entries. Keys and values may not be null, and keys must be distinct.
+   * @param <K> the key type.
+   * @param <V> the value type.
+   * @return a compact immutable map. Mutators throw {@link UnsupportedOperationException};
+   *         copy it into a {@link HashMap} to modify it.
+   */
   @SafeVarargs
   public static <K, V> Map<K, V> mapOf(Map.Entry<K, V> ... entries) {
-    return mapOn(Arrays.stream(entries));
+    Object[] kvs = new Object[entries.length * 2];
+    for (int i = 0; i < entries.length; i++) {
+      kvs[2 * i] = entries[i].getKey();
+      kvs[2 * i + 1] = entries[i].getValue();
+    }
+    return OzSmallMap.of(kvs);
+  }
+
+  /**
+   * @param kvs alternating keys and values, as in <code>mapOf("host", "localhost", "port", 80)</code>.
+   * @param <K> the key type.
+   * @param <V> the value type.
+   * @return a compact immutable map.
+   */
+  public static <K, V> Map<K, V> mapOf(Object ... kvs) {
+    return OzSmallMap.of(kvs);
   }
 
   @SafeVarargs
@@ -24,4 +48,38 @@ public class OzMaps {
         .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue));
   }
 
+  /** @param kvs alternating keys and values. */
+  public static OzLongLongMap longLongMapOf(long ... kvs) {
+    OzCheck.isTrue(kvs.length % 2 == 0, "map.odd.key.value.count");
+    OzLongLongMap m = new OzLongLongMap(kvs.length / 2);
+    for (int i = 0; i < kvs.length; i += 2) { m.put(kvs[i], kvs[i + 1]); }
+    return m;
+  }
+
+  /** @param kvs alternating keys and values. */
+  public static OzIntIntMap intIntMapOf(int ... kvs) {
+    OzCheck.isTrue(kvs.length % 2 == 0, "map.odd.key.value.count");
+    OzIntIntMap m = new OzIntIntMap(kvs.length / 2);
+    for (int i = 0; i < kvs.length; i += 2) { m.put(kvs[i], kvs[i + 1]); }
+    return m;
+  }
+
+  @SafeVarargs
+  public static <V> OzLongObjectMap<V> longObjectMapOf(Map.Entry<Long, V> ... entries) {
+    OzLongObjectMap<V> m = new OzLongObjectMap<>(entries.length);
+    for (Map.Entry<Long, V> e : entries) { m.put(e.getKey(), e.getValue()); }
+    return m;
+  }
+
+  public static <E extends Enum<E>> OzCounterMap<E> counterMapOf(Class<E> enumType) {
+    return OzCounterMap.of(enumType);
+  }
+
+  @SafeVarargs
+  public static <K> OzCounterMap<K> counterMapOf(K ... keys) {
+    OzCounterMap<K> m = new OzCounterMap<>();
+    for (K key : keys) { m.slotOf(key); }
+    return m;
+  }
+
 }
@@ -16,18 +16,15 @@ public class OzPatchLeft {
 
   @SuppressWarnings({"unchecked", "rawtypes"})
   public Map onMap(Map m0, Map m1) {
+    Map m = m0 instanceof OzSmallMap ? new LinkedHashMap(m0) : m0;
     for (Object key : m1.keySet()) {
-      if (m0.containsKey(key)) {
-        if (m0.get(key) instanceof Map) {
-          onMap((Map) m0.get(key), (Map) m1.get(key));
-        } else {
-          m0.put(key, onObj(m0.get(key), m1.get(key)));
-        }
+      if (m.containsKey(key)) {
+        m.put(key, onObj(m.get(key), m1.get(key)));
       } else {
-        m0.put(key, m1.get(key));
+        m.put(key, m1.get(key));
       }
     }
-    return m0;
+    return m;
   }
 
   @SuppressWarnings({"unchecked", "rawtypes"})
@@ -0,0 +1,219 @@
+package io.vacco.oruzka.util;
+
+import io.vacco.oruzka.core.OzCheck;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact immutable maps, built by {@link OzMaps#mapOf}. Maps of up to four entries keep their
+ * keys and values in fields, and larger maps keep them interleaved in a single open addressing
+ * array, so no entry or node objects exist until the map is iterated through {@link #entrySet()}.
+ * Keys and values may not be null, and mutators throw {@link UnsupportedOperationException}.
+ */
+public abstract class OzSmallMap<K, V> extends AbstractMap<K, V> {
+
+  /** @return the number of key slots to scan when iterating. */
+  abstract int slots();
+  /** @return the key in a slot, or null if the slot is empty. */
+  abstract Object keyAt(int slot);
+  abstract Object valueAt(int slot);
+
+  @SuppressWarnings("unchecked")
+  @Override public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (int i = 0; i < slots(); i++) {
+      Object k = keyAt(i);
+      if (k != null) {
+        action.accept((K) k, (V) valueAt(i));
+      }
+    }
+  }
+
+  @Override public V getOrDefault(Object key, V defaultValue) {
+    V v = get(key);
+    return v != null ? v : defaultValue;
+  }
+
+  @Override public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override public int size() { return OzSmallMap.this.size(); }
+      @Override public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<Entry<K, V>>() {
+          private int next = advance(0);
+          private int advance(int i) {
+            while (i < slots() && keyAt(i) == null) { i++; }
+            return i;
+          }
+          @Override public boolean hasNext() { return next < slots(); }
+          @SuppressWarnings("unchecked")
+          @Override public Entry<K, V> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            Entry<K, V> e = new SimpleImmutableEntry<>((K) keyAt(next), (V) valueAt(next));
+            next = advance(next + 1);
+            return e;
+          }
+        };
+      }
+    };
+  }
+
+  private static Object key(Object k) {
+    return OzCheck.notNull(k, "map.null.key");
+  }
+
+  private static Object value(Object v) {
+    return OzCheck.notNull(v, "map.null.value");
+  }
+
+  private static void distinct(Object[] kvs, int n) {
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        OzCheck.isTrue(!kvs[2 * i].equals(kvs[2 * j]), "map.duplicate.key");
+      }
+    }
+  }
+
+  /**
+   * @param kvs alternating keys and values.
+   * @param <K> the key type.
+   * @param <V> the value type.
+   * @return a compact immutable map.
+   */
+  static <K, V> Map<K, V> of(Object[] kvs) {
+    OzCheck.isTrue(kvs.length % 2 == 0, "map.odd.key.value.count");
+    int n = kvs.length / 2;
+    for (int i = 0; i < kvs.length; i += 2) {
+      key(kvs[i]);
+      value(kvs[i + 1]);
+    }
+    if (n <= 4) {
+      distinct(kvs, n);
+    }
+    switch (n) {
+      case 0: return new Map0<>();
+      case 1: return new Map1<>(kvs[0], kvs[1]);
+      case 2: return new Map2<>(kvs[0], kvs[1], kvs[2], kvs[3]);
+      case 3: return new Map3<>(kvs[0], kvs[1], kvs[2], kvs[3], kvs[4], kvs[5]);
+      case 4: return new Map4<>(kvs[0], kvs[1], kvs[2], kvs[3], kvs[4], kvs[5], kvs[6], kvs[7]);
+      default: return new MapN<>(kvs);
+    }
+  }
+
+  static final class Map0<K, V> extends OzSmallMap<K, V> {
+    @Override public V get(Object k) { return null; }
+    @Override public int size() { return 0; }
+    @Override int slots() { return 0; }
+    @Override Object keyAt(int i) { return null; }
+    @Override Object valueAt(int i) { return null; }
+  }
+
+  static final class Map1<K, V> extends OzSmallMap<K, V> {
+    private final Object k0, v0;
+    Map1(Object k0, Object v0) {
+      this.k0 = k0; this.v0 = v0;
+    }
+    @SuppressWarnings("unchecked")
+    @Override public V get(Object k) {
+      return (V) (k0.equals(k) ? v0 : null);
+    }
+    @Override public int size() { return 1; }
+    @Override int slots() { return 1; }
+    @Override Object keyAt(int i) { return k0; }
+    @Override Object valueAt(int i) { return v0; }
+  }
+
+  static final class Map2<K, V> extends OzSmallMap<K, V> {
+    private final Object k0, v0, k1, v1;
+    Map2(Object k0, Object v0, Object k1, Object v1) {
+      this.k0 = k0; this.v0 = v0;
+      this.k1 = k1; this.v1 = v1;
+    }
+    @SuppressWarnings("unchecked")
+    @Override public V get(Object k) {
+      return (V) (k0.equals(k) ? v0 : k1.equals(k) ? v1 : null);
+    }
+    @Override public int size() { return 2; }
+    @Override int slots() { return 2; }
+    @Override Object keyAt(int i) { return i == 0 ? k0 : k1; }
+    @Override Object valueAt(int i) { return i == 0 ? v0 : v1; }
+  }
+
+  static final class Map3<K, V> extends OzSmallMap<K, V> {
+    private final Object k0, v0, k1, v1, k2, v2;
+    Map3(Object k0, Object v0, Object k1, Object v1, Object k2, Object v2) {
+      this.k0 = k0; this.v0 = v0;
+      this.k1 = k1; this.v1 = v1;
+      this.k2 = k2; this.v2 = v2;
+    }
+    @SuppressWarnings("unchecked")
+    @Override public V get(Object k) {
+      return (V) (k0.equals(k) ? v0 : k1.equals(k) ? v1 : k2.equals(k) ? v2 : null);
+    }
+    @Override public int size() { return 3; }
+    @Override int slots() { return 3; }
+    @Override Object keyAt(int i) { return i == 0 ? k0 : i == 1 ? k1 : k2; }
+    @Override Object valueAt(int i) { return i == 0 ? v0 : i == 1 ? v1 : v2; }
+  }
+
+  static final class Map4<K, V> extends OzSmallMap<K, V> {
+    private final Object k0, v0, k1, v1, k2, v2, k3, v3;
+    Map4(Object k0, Object v0, Object k1, Object v1, Object k2, Object v2, Object k3, Object v3) {
+      this.k0 = k0; this.v0 = v0;
+      this.k1 = k1; this.v1 = v1;
+      this.k2 = k2; this.v2 = v2;
+      this.k3 = k3; this.v3 = v3;
+    }
+    @SuppressWarnings("unchecked")
+    @Override public V get(Object k) {
+      return (V) (k0.equals(k) ? v0 : k1.equals(k) ? v1 : k2.equals(k) ? v2 : k3.equals(k) ? v3 : null);
+    }
+    @Override public int size() { return 4; }
+    @Override int slots() { return 4; }
+    @Override Object keyAt(int i) { return i == 0 ? k0 : i == 1 ? k1 : i == 2 ? k2 : k3; }
+    @Override Object valueAt(int i) { return i == 0 ? v0 : i == 1 ? v1 : i == 2 ? v2 : v3; }
+  }
+
+  /** Keys and values interleaved in one array, at a load factor of at most 1/2. */
+  static final class MapN<K, V> extends OzSmallMap<K, V> {
+    private final Object[] table;
+    private final int size, mask;
+
+    MapN(Object[] kvs) {
+      this.size = kvs.length / 2;
+      int slots = Integer.highestOneBit(size * 2 - 1) << 1;
+      this.table = new Object[slots * 2];
+      this.mask = slots - 1;
+      for (int i = 0; i < kvs.length; i += 2) {
+        int s = probe(kvs[i]);
+        OzCheck.isTrue(s < 0, "map.duplicate.key");
+        s = -s - 1;
+        table[2 * s] = kvs[i];
+        table[2 * s + 1] = kvs[i + 1];
+      }
+    }
+
+    private int probe(Object k) {
+      int h = k.hashCode();
+      for (int i = (h ^ (h >>> 16)) & mask; ; i = (i + 1) & mask) {
+        Object k0 = table[2 * i];
+        if (k0 == null) { return -i - 1; }
+        if (k0.equals(k)) { return i; }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public V get(Object k) {
+      if (k == null) { return null; }
+      int i = probe(k);
+      return i >= 0 ? (V) table[2 * i + 1] : null;
+    }
+    @Override public int size() { return size; }
+    @Override int slots() { return mask + 1; }
+    @Override Object keyAt(int i) { return table[2 * i]; }
+    @Override Object valueAt(int i) { return table[2 * i + 1]; }
+  }
+}
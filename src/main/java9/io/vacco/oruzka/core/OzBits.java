@@ -0,0 +1,206 @@
+package io.vacco.oruzka.core;
+
+import java.lang.invoke.*;
+import java.nio.*;
+
+/**
+ * Java 9+ variant of the primitive reads and writes over byte arrays and buffers. Whole words
+ * are accessed through <code>VarHandle</code> byte array and byte buffer views, which the JIT
+ * compiles down to single (possibly unaligned, byte swapped) loads and stores.
+ */
+public class OzBits {
+
+  private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle FLOAT_LE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle FLOAT_BE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle DOUBLE_LE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle DOUBLE_BE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+  private static final VarHandle BB_SHORT_LE = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle BB_SHORT_BE = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle BB_INT_LE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle BB_INT_BE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle BB_LONG_LE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle BB_LONG_BE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle BB_FLOAT_LE = MethodHandles.byteBufferViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle BB_FLOAT_BE = MethodHandles.byteBufferViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle BB_DOUBLE_LE = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle BB_DOUBLE_BE = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+  /**
+   * Checks that <code>[off, off + len)</code> lies within <code>b</code>. Checking a whole
+   * record once up front lets the JIT drop the per-access checks of the reads that follow.
+   */
+  public static void checkRange(byte[] b, int off, int len) {
+    OzCheck.isTrue(off >= 0 && len >= 0 && off <= b.length - len, "bits.index.out.of.bounds");
+  }
+
+  /* ================================ byte arrays ================================ */
+
+  public static short getShortLE(byte[] b, int off) {
+    return (short) SHORT_LE.get(b, off);
+  }
+
+  public static short getShortBE(byte[] b, int off) {
+    return (short) SHORT_BE.get(b, off);
+  }
+
+  public static int getIntLE(byte[] b, int off) {
+    return (int) INT_LE.get(b, off);
+  }
+
+  public static int getIntBE(byte[] b, int off) {
+    return (int) INT_BE.get(b, off);
+  }
+
+  public static long getLongLE(byte[] b, int off) {
+    return (long) LONG_LE.get(b, off);
+  }
+
+  public static long getLongBE(byte[] b, int off) {
+    return (long) LONG_BE.get(b, off);
+  }
+
+  public static float getFloatLE(byte[] b, int off) {
+    return (float) FLOAT_LE.get(b, off);
+  }
+
+  public static float getFloatBE(byte[] b, int off) {
+    return (float) FLOAT_BE.get(b, off);
+  }
+
+  public static double getDoubleLE(byte[] b, int off) {
+    return (double) DOUBLE_LE.get(b, off);
+  }
+
+  public static double getDoubleBE(byte[] b, int off) {
+    return (double) DOUBLE_BE.get(b, off);
+  }
+
+  public static void putShortLE(byte[] b, int off, short v) {
+    SHORT_LE.set(b, off, v);
+  }
+
+  public static void putShortBE(byte[] b, int off, short v) {
+    SHORT_BE.set(b, off, v);
+  }
+
+  public static void putIntLE(byte[] b, int off, int v) {
+    INT_LE.set(b, off, v);
+  }
+
+  public static void putIntBE(byte[] b, int off, int v) {
+    INT_BE.set(b, off, v);
+  }
+
+  public static void putLongLE(byte[] b, int off, long v) {
+    LONG_LE.set(b, off, v);
+  }
+
+  public static void putLongBE(byte[] b, int off, long v) {
+    LONG_BE.set(b, off, v);
+  }
+
+  public static void putFloatLE(byte[] b, int off, float v) {
+    FLOAT_LE.set(b, off, v);
+  }
+
+  public static void putFloatBE(byte[] b, int off, float v) {
+    FLOAT_BE.set(b, off, v);
+  }
+
+  public static void putDoubleLE(byte[] b, int off, double v) {
+    DOUBLE_LE.set(b, off, v);
+  }
+
+  public static void putDoubleBE(byte[] b, int off, double v) {
+    DOUBLE_BE.set(b, off, v);
+  }
+
+  /* ================================== buffers ================================== */
+
+  public static short getShortLE(ByteBuffer bb, int off) {
+    return (short) BB_SHORT_LE.get(bb, off);
+  }
+
+  public static short getShortBE(ByteBuffer bb, int off) {
+    return (short) BB_SHORT_BE.get(bb, off);
+  }
+
+  public static int getIntLE(ByteBuffer bb, int off) {
+    return (int) BB_INT_LE.get(bb, off);
+  }
+
+  public static int getIntBE(ByteBuffer bb, int off) {
+    return (int) BB_INT_BE.get(bb, off);
+  }
+
+  public static long getLongLE(ByteBuffer bb, int off) {
+    return (long) BB_LONG_LE.get(bb, off);
+  }
+
+  public static long getLongBE(ByteBuffer bb, int off) {
+    return (long) BB_LONG_BE.get(bb, off);
+  }
+
+  public static float getFloatLE(ByteBuffer bb, int off) {
+    return (float) BB_FLOAT_LE.get(bb, off);
+  }
+
+  public static float getFloatBE(ByteBuffer bb, int off) {
+    return (float) BB_FLOAT_BE.get(bb, off);
+  }
+
+  public static double getDoubleLE(ByteBuffer bb, int off) {
+    return (double) BB_DOUBLE_LE.get(bb, off);
+  }
+
+  public static double getDoubleBE(ByteBuffer bb, int off) {
+    return (double) BB_DOUBLE_BE.get(bb, off);
+  }
+
+  public static void putShortLE(ByteBuffer bb, int off, short v) {
+    BB_SHORT_LE.set(bb, off, v);
+  }
+
+  public static void putShortBE(ByteBuffer bb, int off, short v) {
+    BB_SHORT_BE.set(bb, off, v);
+  }
+
+  public static void putIntLE(ByteBuffer bb, int off, int v) {
+    BB_INT_LE.set(bb, off, v);
+  }
+
+  public static void putIntBE(ByteBuffer bb, int off, int v) {
+    BB_INT_BE.set(bb, off, v);
+  }
+
+  public static void putLongLE(ByteBuffer bb, int off, long v) {
+    BB_LONG_LE.set(bb, off, v);
+  }
+
+  public static void putLongBE(ByteBuffer bb, int off, long v) {
+    BB_LONG_BE.set(bb, off, v);
+  }
+
+  public static void putFloatLE(ByteBuffer bb, int off, float v) {
+    BB_FLOAT_LE.set(bb, off, v);
+  }
+
+  public static void putFloatBE(ByteBuffer bb, int off, float v) {
+    BB_FLOAT_BE.set(bb, off, v);
+  }
+
+  public static void putDoubleLE(ByteBuffer bb, int off, double v) {
+    BB_DOUBLE_LE.set(bb, off, v);
+  }
+
+  public static void putDoubleBE(ByteBuffer bb, int off, double v) {
+    BB_DOUBLE_BE.set(bb, off, v);
+  }
+}
@@ -0,0 +1,32 @@
+package io.vacco.oruzka.core;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ * Java 9+ variant of the direct buffer release, through <code>Unsafe.invokeCleaner</code>
+ * (the JDK 8 cleaner method is no longer accessible).
+ */
+class OzCleaner {
+
+  private static final MethodHandle INVOKE_CLEANER = OFnSupplier.tryGet(() -> {
+    Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+    Field f = unsafeType.getDeclaredField("theUnsafe");
+    f.setAccessible(true);
+    return MethodHandles.lookup()
+        .findVirtual(unsafeType, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+        .bindTo(f.get(null));
+  });
+
+  static void free(ByteBuffer b) {
+    if (!b.isDirect()) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invokeExact(b);
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+}
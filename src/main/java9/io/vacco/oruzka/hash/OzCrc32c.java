@@ -0,0 +1,37 @@
+package io.vacco.oruzka.hash;
+
+import java.nio.ByteBuffer;
+import java.util.zip.*;
+
+/**
+ * Java 9+ variant of the CRC-32C checksum, delegating to the intrinsified
+ * <code>java.util.zip.CRC32C</code>.
+ */
+public class OzCrc32c implements Checksum {
+
+  private final CRC32C crc = new CRC32C();
+
+  @Override public void update(int b) {
+    crc.update(b);
+  }
+
+  @Override public void update(byte[] b, int off, int len) {
+    crc.update(b, off, len);
+  }
+
+  @Override public void update(byte[] b) {
+    crc.update(b, 0, b.length);
+  }
+
+  @Override public void update(ByteBuffer bb) {
+    crc.update(bb);
+  }
+
+  @Override public long getValue() {
+    return crc.getValue();
+  }
+
+  @Override public void reset() {
+    crc.reset();
+  }
+}
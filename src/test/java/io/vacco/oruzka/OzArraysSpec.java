@@ -0,0 +1,71 @@
+package io.vacco.oruzka;
+
+import io.vacco.oruzka.core.OzArrays;
+import io.vacco.oruzka.hash.OzXxHash;
+import j8spec.junit.J8SpecRunner;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
+
+@RunWith(J8SpecRunner.class)
+public class OzArraysSpec { static {
+  describe(OzArrays.class.getCanonicalName(), () -> {
+    it("radix sorts keys and payloads", () -> {
+      Random r = new Random(5);
+      java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+      for (int n : new int[] {0, 1, 10, 63, 64, 1000, 70_000, 1_000_000}) {
+        for (int range : new int[] {0, 100}) {
+          long[] keys = new long[n];
+          int[] payloads = new int[n];
+          for (int i = 0; i < n; i++) {
+            keys[i] = range == 0 ? r.nextLong() : r.nextInt(range) - range / 2;
+            payloads[i] = i;
+          }
+          long[] orig = keys.clone(), sorted = keys.clone();
+          java.util.Arrays.sort(sorted);
+          OzArrays.radixSort(keys, payloads, pool);
+          assertArrayEquals(sorted, keys);
+          for (int i = 0; i < n; i++) {
+            assertEquals(orig[payloads[i]], keys[i]);
+            assertTrue(i == 0 || keys[i - 1] != keys[i] || payloads[i - 1] < payloads[i]);
+          }
+          long[] k2 = orig.clone();
+          OzArrays.radixSort(k2);
+          assertArrayEquals(sorted, k2);
+          for (int i = 0; i < Math.min(n, 1000); i++) {
+            long k = range == 0 ? r.nextLong() : r.nextInt(range * 2) - range;
+            int e = java.util.Arrays.binarySearch(sorted, k), f = OzArrays.interpolationSearch(sorted, k);
+            assertEquals(e < 0, f < 0);
+            assertEquals(e < 0 ? e : k, f < 0 ? f : sorted[f]);
+          }
+        }
+      }
+      pool.shutdown();
+    });
+    it("benchmarks radix sort against parallel sort on XXH64 hashes", () -> {
+      long[] hashes = new long[4_000_000];
+      for (int i = 0; i < hashes.length; i++) { byte[] kb = ("key-" + i).getBytes(); hashes[i] = OzXxHash.hash64(kb, 0, kb.length, 0); }
+      for (int k = 0; k < 3; k++) {
+        long[] a = hashes.clone(), b = hashes.clone();
+        long t0 = System.nanoTime();
+        java.util.Arrays.parallelSort(a);
+        long t1 = System.nanoTime();
+        OzArrays.radixSort(b);
+        long t2 = System.nanoTime();
+        assertArrayEquals(a, b);
+        int found = 0;
+        long t3 = System.nanoTime();
+        for (int i = 0; i < 1_000_000; i++) { found += java.util.Arrays.binarySearch(a, hashes[i]) >= 0 ? 1 : 0; }
+        long t4 = System.nanoTime();
+        for (int i = 0; i < 1_000_000; i++) { found += OzArrays.interpolationSearch(a, hashes[i]) >= 0 ? 1 : 0; }
+        long t5 = System.nanoTime();
+        assertEquals(2_000_000, found);
+        System.out.printf("sort 4M hashes: parallelSort %.1f ms, radixSort %.1f ms; 1M lookups: binary %.1f ms, interpolation %.1f ms%n",
+            (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t4 - t3) / 1e6, (t5 - t4) / 1e6);
+      }
+    });
+  });
+}}
@@ -0,0 +1,112 @@
+package io.vacco.oruzka;
+
+import io.vacco.oruzka.core.*;
+import io.vacco.oruzka.hash.OzXxHash;
+import j8spec.junit.J8SpecRunner;
+import org.junit.runner.RunWith;
+
+import java.nio.*;
+import java.util.Random;
+
+import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
+
+@RunWith(J8SpecRunner.class)
+public class OzBitsSpec {
+
+  private static long shiftLongLE(byte[] b, int off) {
+    long v = 0;
+    for (int i = 7; i >= 0; i--) {
+      v = (v << 8) | (b[off + i] & 0xFFL);
+    }
+    return v;
+  }
+
+  private static long sumShift(byte[] b) {
+    long acc = 0;
+    for (int p = 0; p + 8 <= b.length; p += 8) { acc += shiftLongLE(b, p); }
+    return acc;
+  }
+
+  private static long sumWords(byte[] b) {
+    long acc = 0;
+    for (int p = 0; p + 8 <= b.length; p += 8) { acc += OzBits.getLongLE(b, p); }
+    return acc;
+  }
+
+  private static double mbPerSec(long bytes, long nanos) {
+    return (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+  }
+
+  static {
+    describe(OzBits.class.getCanonicalName(), () -> {
+      it("reads little-endian words at any offset", () -> {
+        byte[] b = new byte[64];
+        new Random(3).nextBytes(b);
+        for (int off = 0; off + 8 <= b.length; off++) {
+          assertEquals(shiftLongLE(b, off), OzBits.getLongLE(b, off));
+          assertEquals((int) shiftLongLE(b, off), OzBits.getIntLE(b, off));
+        }
+      });
+      it("benchmarks word reads and XXH64 throughput from 1 KB to 1 MB", () -> {
+        long volume = 64L * 1024 * 1024;
+        for (int size = 1024; size <= 1024 * 1024; size *= 4) {
+          byte[] b = new byte[size];
+          new Random(size).nextBytes(b);
+          int rounds = (int) (volume / size);
+          long sink = 0;
+          for (int i = 0; i < rounds; i++) { sink += sumShift(b) + sumWords(b) + OzXxHash.hash64(b, 0, size, i); }
+          long t0 = System.nanoTime();
+          for (int i = 0; i < rounds; i++) { sink += sumShift(b); }
+          long t1 = System.nanoTime();
+          for (int i = 0; i < rounds; i++) { sink += sumWords(b); }
+          long t2 = System.nanoTime();
+          for (int i = 0; i < rounds; i++) { sink += OzXxHash.hash64(b, 0, size, i); }
+          long t3 = System.nanoTime();
+          System.out.printf("%8d bytes: shift reads %8.1f MB/s, word reads %8.1f MB/s, XXH64 %8.1f MB/s (%d)%n",
+              size, mbPerSec(volume, t1 - t0), mbPerSec(volume, t2 - t1), mbPerSec(volume, t3 - t2), sink & 1);
+        }
+      });
+      it("reads and writes primitives in both byte orders", () -> {
+        Random r = new Random(11);
+        byte[] b = new byte[64];
+        for (ByteOrder o : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+          boolean le = o == ByteOrder.LITTLE_ENDIAN;
+          for (int k = 0; k < 200; k++) {
+            r.nextBytes(b);
+            int off = r.nextInt(b.length - 8);
+            ByteBuffer ref = ByteBuffer.wrap(b).order(o);
+            assertEquals(ref.getShort(off), le ? OzBits.getShortLE(b, off) : OzBits.getShortBE(b, off));
+            assertEquals(ref.getInt(off), le ? OzBits.getIntLE(b, off) : OzBits.getIntBE(b, off));
+            assertEquals(ref.getLong(off), le ? OzBits.getLongLE(b, off) : OzBits.getLongBE(b, off));
+            assertEquals(Float.floatToRawIntBits(ref.getFloat(off)),
+                Float.floatToRawIntBits(le ? OzBits.getFloatLE(b, off) : OzBits.getFloatBE(b, off)));
+            assertEquals(Double.doubleToRawLongBits(ref.getDouble(off)),
+                Double.doubleToRawLongBits(le ? OzBits.getDoubleLE(b, off) : OzBits.getDoubleBE(b, off)));
+
+            long v = r.nextLong();
+            byte[] out = new byte[16];
+            ByteBuffer heap = ByteBuffer.allocate(16), direct = ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN);
+            if (le) {
+              OzBits.putShortLE(out, 0, (short) v); OzBits.putIntLE(out, 2, (int) v); OzBits.putLongLE(out, 6, v);
+              OzBits.putShortLE(heap, 0, (short) v); OzBits.putIntLE(heap, 2, (int) v); OzBits.putLongLE(heap, 6, v);
+              OzBits.putFloatLE(direct, 0, Float.intBitsToFloat((int) v)); OzBits.putDoubleLE(direct, 4, Double.longBitsToDouble(v));
+            } else {
+              OzBits.putShortBE(out, 0, (short) v); OzBits.putIntBE(out, 2, (int) v); OzBits.putLongBE(out, 6, v);
+              OzBits.putShortBE(heap, 0, (short) v); OzBits.putIntBE(heap, 2, (int) v); OzBits.putLongBE(heap, 6, v);
+              OzBits.putFloatBE(direct, 0, Float.intBitsToFloat((int) v)); OzBits.putDoubleBE(direct, 4, Double.longBitsToDouble(v));
+            }
+            ByteBuffer exp = ByteBuffer.allocate(16).order(o).putShort((short) v).putInt((int) v).putLong(v);
+            assertArrayEquals(exp.array(), out);
+            assertArrayEquals(exp.array(), heap.array());
+            assertEquals(le ? OzBits.getLongLE(out, 6) : OzBits.getLongBE(out, 6), le ? OzBits.getLongLE(heap, 6) : OzBits.getLongBE(heap, 6));
+            assertEquals(v, le ? OzBits.getLongLE(direct, 4) : OzBits.getLongBE(direct, 4));
+            assertEquals((int) v, le ? OzBits.getIntLE(direct, 0) : OzBits.getIntBE(direct, 0));
+            assertEquals(ByteOrder.LITTLE_ENDIAN, direct.order());
+          }
+        }
+      });
+      it("rejects out of range records", c -> c.expected(IllegalStateException.class), () -> OzBits.checkRange(new byte[8], 4, 5));
+    });
+  }
+}
@@ -0,0 +1,48 @@
+package io.vacco.oruzka;
+
+import io.vacco.oruzka.core.*;
+import j8spec.junit.J8SpecRunner;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
+
+@RunWith(J8SpecRunner.class)
+public class OzBytesSpec { static {
+  describe(OzBytes.class.getCanonicalName(), () -> {
+    it("can build byte arrays with amortized growth", () -> {
+      String s = "ascii, \u00e9t\u00e9, \u65e5\u672c, \ud83d\ude00, \ud83d";
+      try (OzBytes b = OzBytes.borrow()) {
+        b.appendUtf8(s).append((byte) '|').append(s, StandardCharsets.UTF_16BE);
+        assertArrayEquals(OzBytes.concatAll(s.getBytes(StandardCharsets.UTF_8), new byte[] {'|'},
+            s.getBytes(StandardCharsets.UTF_16BE)), b.toByteArray());
+        try (OzBytes b1 = OzBytes.borrow()) {
+          assertNotSame(b, b1);
+        }
+      }
+      OzBytes b = new OzBytes(1);
+      for (int i = 0; i < 100_000; i++) { b.append(ByteBuffer.wrap(new byte[] {(byte) i})); }
+      assertEquals(100_000, b.size());
+      assertEquals((byte) 99_999, b.toByteArray()[99_999]);
+      assertArrayEquals(new byte[] {1, 2, 3}, OzBytes.concatAll(new byte[] {1}, null, new byte[] {2, 3}));
+      assertArrayEquals("ab\u00e9".getBytes(StandardCharsets.UTF_8), OzArrays.toStringConcat("a", null, "b", "\u00e9").get());
+      assertFalse(OzArrays.toStringConcat((Object) null).isPresent());
+
+      Object[] values = java.util.stream.IntStream.range(0, 20_000).mapToObj(i -> "value-" + i).toArray();
+      for (int k = 0; k < 3; k++) {
+        long t0 = System.nanoTime();
+        byte[] a = java.util.Arrays.stream(values).map(v -> v.toString().getBytes(StandardCharsets.UTF_8))
+            .reduce((x, y) -> { byte[] r = java.util.Arrays.copyOf(x, x.length + y.length);
+              System.arraycopy(y, 0, r, x.length, y.length); return r; }).get();
+        long t1 = System.nanoTime();
+        byte[] c = OzArrays.toStringConcat(values).get();
+        long t2 = System.nanoTime();
+        assertArrayEquals(a, c);
+        System.out.printf("concat 20000 values: pairwise %.2f ms, pooled %.2f ms%n", (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+      }
+    });
+  });
+}}
@@ -0,0 +1,84 @@
+package io.vacco.oruzka;
+
+import io.vacco.oruzka.core.*;
+import j8spec.junit.J8SpecRunner;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
+
+@RunWith(J8SpecRunner.class)
+public class OzCodecSpec { static {
+  describe(OzCodec.class.getCanonicalName(), () -> {
+    it("rejects malformed hex", c -> c.expected(IllegalStateException.class), () -> OzCodec.hexDecode("0g"));
+    it("rejects malformed base64", c -> c.expected(IllegalStateException.class), () -> OzCodec.base64Decode("QUJD*"));
+    it("can encode and decode hex, base64 and varints", () -> {
+      Random r = new Random(7);
+      for (int n = 0; n < 40; n++) {
+        byte[] b = new byte[n];
+        r.nextBytes(b);
+        String hex = OzCodec.hex(b, false);
+        assertEquals(hex.toUpperCase(), OzArrays.bytesToHex(b));
+        assertArrayEquals(b, OzCodec.hexDecode(hex.toUpperCase()));
+        for (boolean url : new boolean[] {false, true}) {
+          java.util.Base64.Encoder e = url ? java.util.Base64.getUrlEncoder() : java.util.Base64.getEncoder();
+          assertEquals(e.encodeToString(b), OzCodec.base64(b, url, true));
+          assertEquals(e.withoutPadding().encodeToString(b), OzCodec.base64(b, url, false));
+          assertEquals(e.withoutPadding().encodeToString(b), OzCodec.base64Encode(b, 0, n, new StringBuilder(), url, false).toString());
+          assertArrayEquals(b, OzCodec.base64Decode(OzCodec.base64(b, url, n % 2 == 0)));
+          ByteBuffer src = ByteBuffer.allocateDirect(n).put(b);
+          src.flip();
+          ByteBuffer dst = ByteBuffer.allocate(OzCodec.base64Length(n, true));
+          OzCodec.base64Encode(src, dst, url, true);
+          assertFalse(src.hasRemaining() || dst.hasRemaining());
+          assertEquals(e.encodeToString(b), new String(dst.array(), StandardCharsets.US_ASCII));
+        }
+        ByteBuffer hb = ByteBuffer.allocate(n * 2), db = ByteBuffer.allocate(n);
+        OzCodec.hexEncode(ByteBuffer.wrap(b), hb, true);
+        hb.flip();
+        OzCodec.hexDecode(hb, db);
+        assertArrayEquals(b, db.array());
+      }
+
+      long[] values = {0, 1, 127, 128, 300, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 35};
+      byte[] buf = new byte[values.length * 20];
+      int p = 0;
+      for (long v : values) {
+        p = OzCodec.putVarLong(OzCodec.zigZag(v), buf, p);
+        assertEquals(v, OzCodec.unZigZag(OzCodec.getVarLong(ByteBuffer.wrap(buf, p - OzCodec.varLongLength(OzCodec.zigZag(v)), 10))));
+        p = OzCodec.putVarLong(v, buf, p);
+      }
+      ByteBuffer vb = ByteBuffer.wrap(buf, 0, p);
+      for (long v : values) {
+        assertEquals(v, OzCodec.unZigZag(OzCodec.getVarLong(vb)));
+        assertEquals(v, OzCodec.getVarLong(buf, vb.position()));
+        vb.position(vb.position() + OzCodec.varLongLength(v));
+      }
+      assertEquals(10, OzCodec.varLongLength(-1));
+      assertEquals(2, OzCodec.varLongLength(300));
+
+      byte[] data = new byte[1 << 20];
+      r.nextBytes(data);
+      char[] hexOut = new char[data.length * 2];
+      byte[] b64Out = new byte[OzCodec.base64Length(data.length, true)];
+      for (int k = 0; k < 3; k++) {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 8; i++) { OzCodec.hexEncode(data, 0, data.length, hexOut, 0, false); }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < 8; i++) { OzCodec.base64Encode(data, 0, data.length, b64Out, 0, false, true); }
+        long t2 = System.nanoTime();
+        for (int i = 0; i < 8; i++) { java.util.Base64.getEncoder().encode(data, b64Out); }
+        long t3 = System.nanoTime();
+        for (int i = 0; i < 8; i++) { OzCodec.base64Decode(b64Out, 0, b64Out.length, data, 0); }
+        long t4 = System.nanoTime();
+        double mb = 8.0 * data.length / (1 << 20);
+        System.out.printf("codec MB/s: hex %.0f, base64 %.0f (jdk %.0f), base64 decode %.0f%n",
+            mb / ((t1 - t0) / 1e9), mb / ((t2 - t1) / 1e9), mb / ((t3 - t2) / 1e9), mb / ((t4 - t3) / 1e9));
+      }
+    });
+  });
+}}
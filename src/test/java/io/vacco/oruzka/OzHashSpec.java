@@ -1,12 +1,16 @@
 package io.vacco.oruzka;
 
 import io.vacco.oruzka.core.OzArrays;
-import io.vacco.oruzka.hash.OzMd5;
-import io.vacco.oruzka.hash.OzXxHash;
+import io.vacco.oruzka.hash.*;
 import j8spec.junit.J8SpecRunner;
 import org.junit.runner.RunWith;
 
-import java.io.File;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 import static j8spec.J8Spec.*;
@@ -14,6 +18,19 @@ import static org.junit.Assert.*;
 
 @RunWith(J8SpecRunner.class)
 public class OzHashSpec {
+
+  private static byte[] sanityBuffer(int len) { // same generator as xxHash's sanity checks
+    byte[] b = new byte[len];
+    long gen = 2654435761L;
+    for (int i = 0; i < len; i++) {
+      b[i] = (byte) (gen >>> 56);
+      gen *= 0x9E3779B185EBCA8DL;
+    }
+    return b;
+  }
+
+  public enum Flavor { vanilla, chocolate }
+
   static {
     describe("Hashing", () -> {
       it("can hash an array of strings", () -> {
@@ -35,6 +52,326 @@ public class OzHashSpec {
           System.out.println(OzXxHash.hash64(bytes, 0, bytes.length, seedL));
         });
       });
+      it("matches XXHash reference values", () -> {
+        byte[] empty = new byte[0];
+        assertEquals(0x02CC5D05, OzXxHash.hash32(empty, 0, 0, 0));
+        assertEquals(0xEF46DB3751D8E999L, OzXxHash.hash64(empty, 0, 0, 0));
+      });
+      it("can compute XXHash values incrementally", () -> {
+        byte[] data = new byte[4096];
+        new Random(42).nextBytes(data);
+        OzXxHasher32 h32 = new OzXxHasher32(42);
+        OzXxHasher64 h64 = new OzXxHasher64(42);
+        for (int len : new int[] {0, 1, 3, 15, 16, 17, 31, 32, 33, 63, 64, 100, 1000, 4096}) {
+          for (int step : new int[] {1, 5, 16, 31, 32, 250}) {
+            h32.reset();
+            h64.reset();
+            for (int p = 0; p < len; p += step) {
+              int n = Math.min(step, len - p);
+              h32.update(data, p, n);
+              h64.update(ByteBuffer.wrap(data, p, n));
+            }
+            assertEquals(OzXxHash.hash32(data, 0, len, 42), h32.digest());
+            assertEquals(OzXxHash.hash64(data, 0, len, 42), h64.digest());
+          }
+          ByteBuffer direct = ByteBuffer.allocateDirect(len);
+          direct.put(data, 0, len).flip();
+          assertEquals(OzXxHash.hash64(data, 0, len, 42), h64.reset().update(direct).digest());
+        }
+      });
+      it("can compute XXHash values for heap and direct buffers", () -> {
+        byte[] data = new byte[1031];
+        new Random(7).nextBytes(data);
+        for (int len : new int[] {0, 3, 7, 16, 31, 32, 65, 1031}) {
+          ByteBuffer direct = ByteBuffer.allocateDirect(len + 2);
+          direct.put((byte) 1).put(data, 0, len).flip().position(1);
+          for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            direct.order(order);
+            assertEquals(OzXxHash.hash32(data, 0, len, 42), OzXxHash.hash32(direct, 42));
+            assertEquals(OzXxHash.hash64(data, 0, len, 42), OzXxHash.hash64(direct, 42));
+            assertEquals(1, direct.position());
+          }
+          assertEquals(OzXxHash.hash64(data, 0, len, 42), OzXxHash.hash64(ByteBuffer.wrap(data, 0, len), 42));
+        }
+      });
+      it("can compute XXHash values for memory mapped files", () -> {
+        byte[] data = new byte[100_003];
+        new Random(11).nextBytes(data);
+        Path tmp = Files.createTempFile("oruzka", ".bin");
+        try {
+          Files.write(tmp, data);
+          assertEquals(OzXxHash.hash64(data, 0, data.length, 42), OzXxHash.hashFile(tmp, 42));
+        } finally {
+          Files.delete(tmp);
+        }
+      });
+      it("matches XXH3 and XXH128 reference values", () -> {
+        byte[] b = sanityBuffer(2367);
+        long seed = 0x9E3779B185EBCA8DL;
+        int[] lengths = {0, 1, 6, 12, 24, 48, 80, 195, 403, 512, 2048, 2240, 2367};
+        long[] h64 = {
+            0x2D06800538D394C2L, 0xC44BDFF4074EECDBL, 0x27B56A84CD2D7325L, 0xA713DAF0DFBB77E7L,
+            0xA3FE70BF9D3510EBL, 0x397DA259ECBA1F11L, 0xBCDEFBBB2C47C90AL, 0xCD94217EE362EC3AL,
+            0xCDEB804D65C6DEA4L, 0x617E49599013CB6BL, 0xDD59E2C3A5F038E0L, 0x6E73A90539CF2948L,
+            0xCB37AEB9E5D361EDL
+        };
+        long[] h64Seeded = {
+            0xA8A6B918B2F0364AL, 0x032BE332DD766EF8L, 0x84589C116AB59AB9L, 0xE7303E1B2336DE0EL,
+            0x850E80FC35BDD690L, 0xADC2CBAA44ACC616L, 0xC6DD0CB699532E73L, 0xBA68003D370CB3D9L,
+            0x6259F6ECFD6443FDL, 0x3CE457DE14C27708L, 0x66F81670669ABABCL, 0x757BA8487D1B5247L,
+            0xD2DB3415B942B42AL
+        };
+        for (int i = 0; i < lengths.length; i++) {
+          assertEquals(h64[i], OzXxHash3.hash64(b, 0, lengths[i], 0));
+          assertEquals(h64Seeded[i], OzXxHash3.hash64(b, 0, lengths[i], seed));
+        }
+        assertEquals(new OzHash128(0x6001C324468D497FL, 0x99AA06D3014798D8L), OzXxHash3.hash128(b, 0, 0, 0));
+        assertEquals(new OzHash128(0xC44BDFF4074EECDBL, 0xA6CD5E9392000F6AL), OzXxHash3.hash128(b, 0, 1, 0));
+        assertEquals(new OzHash128(0x3E7039BDDA43CFC6L, 0x082AFE0B8162D12AL), OzXxHash3.hash128(b, 0, 6, 0));
+        assertEquals(new OzHash128(0x061A192713F69AD9L, 0x6E3EFD8FC7802B18L), OzXxHash3.hash128(b, 0, 12, 0));
+        assertEquals(new OzHash128(0x1E7044D28B1B901DL, 0x0CE966E4678D3761L), OzXxHash3.hash128(b, 0, 24, 0));
+        assertEquals("06b05ab6733a618578af5f94892f3950", OzXxHash3.hash128("abc".getBytes()).toString());
+        assertEquals(0x78AF5F94892F3950L, OzXxHash3.hash64("abc".getBytes()));
+      });
+      it("can compute XXH3 and XXH128 values incrementally", () -> {
+        byte[] data = sanityBuffer(4096);
+        for (long seed : new long[] {0, 42}) {
+          OzXxHasher3 h = new OzXxHasher3(seed);
+          for (int len : new int[] {0, 5, 16, 17, 128, 129, 240, 241, 255, 256, 257, 511, 1024, 1025, 2367, 4096}) {
+            for (int step : new int[] {1, 63, 64, 100, 256, 257, 4096}) {
+              h.reset();
+              for (int p = 0; p < len; p += step) {
+                h.update(data, p, Math.min(step, len - p));
+              }
+              assertEquals(OzXxHash3.hash64(data, 0, len, seed), h.digest64());
+              assertEquals(OzXxHash3.hash128(data, 0, len, seed), h.digest128());
+            }
+            ByteBuffer direct = ByteBuffer.allocateDirect(len);
+            direct.put(data, 0, len).flip();
+            assertEquals(OzXxHash3.hash64(data, 0, len, seed), h.reset().update(direct).digest64());
+          }
+        }
+      });
+      it("can compute XXH64 values for character sequences without encoding them first", () -> {
+        StringBuilder mixed = new StringBuilder();
+        Random r = new Random(5);
+        for (int i = 0; i < 300; i++) {
+          mixed.append(i % 7 == 0 ? (char) (0x80 + r.nextInt(0xD000)) : (char) ('a' + r.nextInt(26)));
+          if (i % 50 == 0) { mixed.append("\uD83D\uDE00"); }
+        }
+        String[] samples = {
+            "", "a", "Hello World", "0123456789abcdefghijklmnopqrstuvwxyz0123456789",
+            "caf\u00e9 \u00fcber \u4e2d\u6587 \uD83D\uDE00", "broken \uD800 pair \uDC00", "\uD83D",
+            mixed.toString()
+        };
+        for (String s0 : samples) {
+          byte[] utf16 = new byte[s0.length() * 2];
+          ByteBuffer.wrap(utf16).order(ByteOrder.LITTLE_ENDIAN).asCharBuffer().put(s0);
+          byte[] utf8 = s0.getBytes(StandardCharsets.UTF_8);
+          assertEquals(OzXxHash.hash64(utf16, 0, utf16.length, 42), OzXxHash.hashChars(s0, 42));
+          assertEquals(OzXxHash.hash64(utf8, 0, utf8.length, 42), OzXxHash.hashCharsUtf8(s0, 42));
+          assertEquals(OzXxHash.hashCharsUtf8(s0, 42), OzXxHash.hashCharsUtf8(new StringBuilder(s0), 42));
+        }
+      });
+      it("can hash composite cache keys", () -> {
+        OzKeyHasher k64 = OzKeyHasher.xx64(42);
+        OzKeyHasher k128 = OzKeyHasher.xx128(42);
+        assertNotEquals(
+            k64.reset().putString("ab").putString("c").digest64(),
+            k64.reset().putString("a").putString("bc").digest64()
+        );
+        assertNotEquals(
+            k128.reset().putString("ab").putString("c").digest128(),
+            k128.reset().putString("a").putString("bc").digest128()
+        );
+        assertNotEquals(k64.reset().put(1).digest64(), k64.reset().put(1L).digest64());
+        assertNotEquals(k64.reset().put(null).put("a").digest64(), k64.reset().put("a").put(null).digest64());
+
+        byte[] big = sanityBuffer(1000);
+        long h0 = k64.reset().put("user").put(12345L).put(Flavor.vanilla).put(big).put(true).digest64();
+        long h1 = k64.reset().putString("user").putLong(12345L).putEnum(Flavor.vanilla).putBytes(big).putBoolean(true).digest64();
+        long h2 = k64.reset().put("user").put(12345L).put(Flavor.chocolate).put(big).put(true).digest64();
+        assertEquals(h0, h1);
+        assertNotEquals(h0, h2);
+
+        OzHash128 x0 = k128.reset().put("user").put(3.5).put('c').digest128();
+        OzHash128 x1 = k128.reset().put("user").put(3.5).put('c').digest128();
+        assertEquals(x0, x1);
+      });
+      it("rejects 128-bit digests from 64-bit key hashers",
+          c -> c.expected(IllegalStateException.class),
+          () -> OzKeyHasher.xx64(0).putInt(1).digest128());
+      it("can compute chunked tree hashes and manifests of files", () -> {
+        int chunk = 64 * 1024;
+        byte[] data = sanityBuffer(10 * chunk + 123);
+        Path tmp = Files.createTempFile("oruzka", ".bin");
+        try {
+          Files.write(tmp, data);
+          OzTreeHash th = OzTreeHash.of(tmp, chunk, ForkJoinPool.commonPool());
+          assertEquals(11, th.chunks.length);
+          assertEquals(OzXxHash.hash64(data, 10 * chunk, 123, 0), th.chunks[10]);
+          assertEquals(0, th.verify(tmp, ForkJoinPool.commonPool()).length);
+
+          ByteArrayOutputStream bos = new ByteArrayOutputStream();
+          th.write(new DataOutputStream(bos));
+          OzTreeHash th1 = OzTreeHash.read(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+          assertEquals(th.root, th1.root);
+
+          data[3 * chunk + 7] ^= 1;
+          Files.write(tmp, data);
+          int[] changed = th.verify(tmp, new ForkJoinPool(2));
+          assertEquals(1, changed.length);
+          assertEquals(3, changed[0]);
+          assertNotEquals(th.root, OzTreeHash.of(tmp, chunk, ForkJoinPool.commonPool()).root);
+
+          Files.write(tmp, Arrays.copyOf(data, 8 * chunk));
+          assertArrayEquals(new int[] {3, 8, 9, 10}, th.verify(tmp, ForkJoinPool.commonPool()));
+          System.out.println(th);
+        } finally {
+          Files.delete(tmp);
+        }
+      });
+      it("rejects tree hashes and manifests with invalid chunk sizes", () -> {
+        Path tmp = Files.createTempFile("oruzka", ".bin");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(0);
+        out.writeLong(100);
+        try {
+          Files.write(tmp, new byte[100]);
+          for (Runnable r : new Runnable[] {
+              () -> OzTreeHash.of(tmp, 0, ForkJoinPool.commonPool()),
+              () -> OzTreeHash.of(tmp, -1, ForkJoinPool.commonPool()),
+              () -> OzTreeHash.read(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())))
+          }) {
+            try {
+              r.run();
+              fail("invalid chunk size accepted");
+            } catch (IllegalStateException e) {
+              assertTrue(e.getMessage().contains("tree.hash.invalid.chunk.size"));
+            }
+          }
+        } finally {
+          Files.delete(tmp);
+        }
+      });
+      it("can compute digests with pooled digesters", () -> {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("E3069283", OzDigest.CRC32C.hexOf(check));
+        assertEquals("25F9E794323B453885F5181F1B624D0B", OzDigest.MD5.hexOf(check));
+        assertEquals("F7C3BC1D808E04732ADF679965CCC34CA7AE3441", OzDigest.SHA1.hexOf(check));
+        assertEquals("15E2B0D3C33891EBB0F1EF609EC419420C20E320CE94C65FBC8C3312448EB225", OzDigest.SHA256.hexOf(check));
+        assertEquals(String.format("%016X", OzXxHash.hash64(check, 0, check.length, 0)), OzDigest.XXH64.hexOf(check));
+
+        byte[] data = sanityBuffer(3 * 1024 * 1024 + 17);
+        Path tmp = Files.createTempFile("oruzka", ".bin");
+        try {
+          Files.write(tmp, data);
+          for (OzDigest d : OzDigest.values()) {
+            String expected = d.hexOf(data);
+            assertEquals(expected, d.hexOf(tmp));
+            assertEquals(expected, d.hexOf(new ByteArrayInputStream(data)));
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data).flip();
+            assertEquals(expected, OzArrays.bytesToHex(d.of(direct)));
+          }
+          assertEquals(OzDigest.MD5.hexOf(data), OzMd5.md5SumOf(tmp.toFile()));
+        } finally {
+          Files.delete(tmp);
+        }
+      });
+      it("can build incremental directory checksum manifests", () -> {
+        Path dir = Files.createTempDirectory("oruzka");
+        Path cache = Files.createTempFile("oruzka", ".manifest");
+        Files.delete(cache);
+        try {
+          Files.createDirectories(dir.resolve("a/b"));
+          for (int i = 0; i < 20; i++) {
+            Files.write(dir.resolve(i % 2 == 0 ? "a/f" + i : "a/b/f" + i), sanityBuffer(i * 100));
+          }
+          OzManifest m0 = OzManifest.of(dir, OzDigest.SHA256, cache, 4);
+          assertEquals(20, m0.entries.size());
+          assertEquals(20, m0.hashed);
+          assertEquals(OzDigest.SHA256.hexOf(dir.resolve("a/b/f7")), OzArrays.bytesToHex(m0.entries.get("a/b/f7").digest));
+
+          OzManifest m1 = OzManifest.of(dir, OzDigest.SHA256, cache, 4);
+          assertEquals(0, m1.hashed);
+          assertEquals(20, m1.reused);
+
+          Files.write(dir.resolve("a/f4"), sanityBuffer(12345));
+          OzManifest m2 = OzManifest.of(dir, OzDigest.SHA256, cache, 4);
+          assertEquals(1, m2.hashed);
+          assertEquals(19, m2.reused);
+          assertEquals(Collections.singletonList("a/f4"), m2.changed(m0));
+        } finally {
+          Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+          Files.deleteIfExists(cache);
+        }
+      });
+      it("can split content into content-defined chunks", () -> {
+        OzChunker cdc = new OzChunker(1024, 4096, 16384);
+        byte[] data = new byte[1024 * 1024];
+        new Random(13).nextBytes(data);
+        Path tmp = Files.createTempFile("oruzka", ".bin");
+        try {
+          Files.write(tmp, data);
+          List<OzChunker.Chunk> c0 = cdc.chunksOf(tmp);
+          List<OzChunker.Chunk> c1 = cdc.chunksOf(new ByteArrayInputStream(data));
+          assertEquals(c0.toString(), c1.toString());
+          long total = 0;
+          for (OzChunker.Chunk c : c0) {
+            assertEquals(total, c.offset);
+            assertTrue(c.length <= cdc.maxSize);
+            assertEquals(OzXxHash.hash64(data, (int) c.offset, c.length, 0), c.hash);
+            total += c.length;
+          }
+          assertEquals(data.length, total);
+          System.out.printf("%d chunks, %d bytes on average%n", c0.size(), total / c0.size());
+
+          byte[] edited = new byte[data.length + 10];
+          System.arraycopy(data, 0, edited, 0, 5000);
+          System.arraycopy(data, 5000, edited, 5010, data.length - 5000);
+          Set<Long> before = new HashSet<>();
+          c0.forEach(c -> before.add(c.hash));
+          long shared = cdc.chunksOf(new ByteArrayInputStream(edited)).stream().filter(c -> before.contains(c.hash)).count();
+          assertTrue(shared >= c0.size() - 3);
+        } finally {
+          Files.delete(tmp);
+        }
+      });
+      it("can route keys to shards with consistent and rendezvous hashing", () -> {
+        int keys = 100_000;
+        int moved = 0;
+        for (int k = 0; k < keys; k++) {
+          long h = OzXxHash.avalanche64(k);
+          int b = OzShards.jump(h, 10);
+          assertTrue(b >= 0 && b < 10);
+          int b1 = OzShards.jump(h, 11);
+          if (b != b1) { assertEquals(10, b1); moved++; }
+        }
+        assertTrue(Math.abs(moved - keys / 11) < keys / 100);
+
+        long[] nodes = {11, 22, 33, 44, 55, 66, 77, 88, 99, 111};
+        long[] nodes1 = java.util.Arrays.copyOf(nodes, 11);
+        nodes1[10] = 222;
+        OzHashRing ring = OzHashRing.of(160, 7, nodes), ring1 = ring.with(222);
+        assertSame(ring1, ring1.with(222));
+        assertEquals(11, ring1.size());
+        int ringMoved = 0, hrwMoved = 0;
+        int[] load = new int[nodes.length];
+        for (int k = 0; k < keys; k++) {
+          long h = OzXxHash.avalanche64(k);
+          long n = ring.route(h), n1 = ring1.route(h);
+          if (n != n1) { assertEquals(222, n1); ringMoved++; }
+          int i = OzShards.rendezvous(h, nodes), i1 = OzShards.rendezvous(h, nodes1);
+          load[i]++;
+          if (i != i1) { assertEquals(10, i1); hrwMoved++; }
+        }
+        assertTrue(Math.abs(ringMoved - keys / 11) < keys / 30);
+        assertTrue(Math.abs(hrwMoved - keys / 11) < keys / 100);
+        for (int l : load) { assertTrue(Math.abs(l - keys / 10) < keys / 50); }
+        assertEquals(ring.route("meep"), ring1.without(222).route("meep"));
+      });
     });
   }
 }
@@ -1,14 +1,20 @@
 package io.vacco.oruzka;
 
-import io.vacco.oruzka.io.OzIo;
+import io.vacco.oruzka.io.*;
 import j8spec.junit.J8SpecRunner;
 import org.junit.runner.RunWith;
 
-import java.io.File;
-import java.net.URL;
-import java.util.Arrays;
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
 
 @RunWith(J8SpecRunner.class)
 public class OzIoSpec { static {
@@ -19,5 +25,150 @@ public class OzIoSpec { static {
       System.out.println(OzIo.loadFrom(u));
       System.out.println(Arrays.toString(OzIo.loadLinesFrom(u)));
     });
+    it("can load resource bytes and text without rewriting line endings", () -> {
+      String text = "a\r\nb\n\u00e9t\u00e9\r\n\ud83d\ude00\n";
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      Path dir = Files.createTempDirectory("oz-load"), f = dir.resolve("t.txt"), jar = dir.resolve("t.jar");
+      try {
+        Files.write(f, bytes);
+        try (java.util.zip.ZipOutputStream zo = new java.util.zip.ZipOutputStream(Files.newOutputStream(jar))) {
+          zo.putNextEntry(new java.util.zip.ZipEntry("t.txt"));
+          zo.write(bytes);
+        }
+        URL stream = new URL(null, "oz:t", new URLStreamHandler() { // no content length
+          @Override protected URLConnection openConnection(URL u) {
+            return new URLConnection(u) {
+              @Override public void connect() {}
+              @Override public InputStream getInputStream() {
+                byte[] big = new byte[100_000];
+                for (int i = 0; i < big.length; i++) { big[i] = bytes[i % bytes.length]; }
+                return new ByteArrayInputStream(big);
+              }
+            };
+          }
+        });
+        for (URL u : new URL[] {f.toUri().toURL(), new URL("jar:" + jar.toUri() + "!/t.txt")}) {
+          assertArrayEquals(bytes, OzIo.loadBytesFrom(u));
+          assertEquals(text, OzIo.loadFrom(u));
+        }
+        byte[] big = OzIo.loadBytesFrom(stream);
+        assertEquals(100_000, big.length);
+        assertEquals(bytes[99_999 % bytes.length], big[99_999]);
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
+    it("can stream mapped lines in parallel", () -> {
+      Path dir = Files.createTempDirectory("oz-lines"), p = dir.resolve("log.txt");
+      try {
+        StringBuilder sb = new StringBuilder("first\r\nsecond\rthird\n\n\u00e9t\u00e9 \u65e5\u672c\n");
+        for (int i = 0; i < 300_000; i++) { sb.append("line ").append(i).append(i % 7 == 0 ? "\r\n" : "\n"); }
+        sb.append("last");
+        Files.write(p, sb.toString().getBytes(StandardCharsets.UTF_8));
+        List<String> expected;
+        try (BufferedReader br = Files.newBufferedReader(p)) { expected = br.lines().collect(Collectors.toList()); }
+        for (int segment : new int[] {OzMappedLines.SEGMENT_BYTES, 64 * 1024}) {
+          try (OzMappedLines ml = OzMappedLines.of(p, segment)) {
+            assertEquals(expected, ml.strings().collect(Collectors.toList()));
+            assertEquals(expected, ml.strings().parallel().collect(Collectors.toList()));
+            assertEquals(expected.stream().mapToLong(String::length).sum(),
+                ml.lines().parallel().mapToLong(l -> l.toString().length()).sum());
+            long t0 = System.nanoTime();
+            long n = ml.lines().parallel().filter(l -> l.length > 0 && l.byteAt(l.length - 1) == '7').count();
+            System.out.printf("%s: %d lines ending in 7, %.1f ms%n", ml, n, (System.nanoTime() - t0) / 1e6);
+            assertEquals(expected.stream().filter(l -> l.endsWith("7")).count(), n);
+          }
+        }
+        assertEquals(expected, OzIo.withUtf8Lines(p.toUri().toURL(), s -> s.collect(Collectors.toList())));
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
+    it("can read file URLs which are not valid URIs", () -> {
+      Path dir = Files.createTempDirectory("oz lines"), f = dir.resolve("t.txt");
+      try {
+        Files.write(f, "a\nb c\n".getBytes(StandardCharsets.UTF_8));
+        URL u = new URL("file:" + f.toAbsolutePath()); // unencoded space, as File.toURL() makes
+        assertArrayEquals(new String[] {"a", "b c"}, OzIo.loadLinesFrom(u));
+        assertEquals("a\nb c\n", OzIo.loadFrom(u));
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
+    it("can split mapped lines on carriage returns", () -> {
+      Path dir = Files.createTempDirectory("oz-lines"), p = dir.resolve("cr.txt");
+      try {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) { sb.append('x').append(i).append(i % 5 == 0 ? "\r\n" : "\r"); }
+        Files.write(p, sb.toString().getBytes(StandardCharsets.UTF_8));
+        List<String> expected;
+        try (BufferedReader br = Files.newBufferedReader(p)) { expected = br.lines().collect(Collectors.toList()); }
+        for (int segment = 8; segment <= 16; segment++) {
+          try (OzMappedLines ml = OzMappedLines.of(p, segment)) {
+            assertEquals(expected, ml.strings().collect(Collectors.toList()));
+            assertEquals(expected, ml.strings().parallel().collect(Collectors.toList()));
+          }
+        }
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
+    it("can persist a memory mapped key index", () -> {
+      Path dir = Files.createTempDirectory("oz-index"), p = dir.resolve("keys.idx");
+      try {
+        try (OzMappedIndex w = OzMappedIndex.create(p, 100_000)) {
+          assertEquals(131_072, w.capacity);
+          assertEquals(4096 + 131_072 * 24L, Files.size(p));
+          for (int i = 0; i < 100_000; i++) { assertTrue(w.put("key-" + i, i * 100L)); }
+          assertFalse(w.put("key-7", 1));
+          try (OzMappedIndex r = OzMappedIndex.openReader(p)) {
+            assertEquals(OzMappedIndex.MISSING, r.get("key-7"));
+            w.commit();
+            assertEquals(700, r.refresh().get("key-7"));
+            assertEquals(100_000, r.size());
+          }
+          assertTrue(w.put("late", 42));
+          assertEquals(OzMappedIndex.MISSING, w.get("late"));
+        }
+        try (OzMappedIndex w = OzMappedIndex.openWriter(p); OzMappedIndex r = OzMappedIndex.openReader(p)) {
+          assertEquals(OzMappedIndex.MISSING, w.get("late"));
+          for (int i = 0; i < 100_000; i++) { assertEquals(i * 100L, r.get("key-" + i)); }
+          assertEquals(OzMappedIndex.MISSING, r.get("key-100000"));
+          assertTrue(w.put("late", 43));
+          w.commit();
+          assertEquals(43, r.refresh().get("late"));
+        }
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+          ch.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 64 + 8); // corrupt the newest header copy (generation 3)
+        }
+        try (OzMappedIndex r = OzMappedIndex.openReader(p)) {
+          assertEquals(100_000, r.size());
+          assertEquals(OzMappedIndex.MISSING, r.get("late"));
+        }
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
+    it("allows a single index writer", () -> {
+      Path dir = Files.createTempDirectory("oz-index"), p = dir.resolve("keys.idx");
+      try (OzMappedIndex w = OzMappedIndex.create(p, 16)) {
+        try {
+          OzMappedIndex.openWriter(p).close();
+          fail("second writer opened");
+        } catch (IllegalStateException e) {
+          assertTrue(w.put("k", 1)); // the first writer keeps working
+        }
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
+    it("rejects the reserved missing value", c -> c.expected(IllegalStateException.class), () -> {
+      Path dir = Files.createTempDirectory("oz-index");
+      try (OzMappedIndex w = OzMappedIndex.create(dir.resolve("keys.idx"), 16)) {
+        w.put("k", OzMappedIndex.MISSING);
+      } finally {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(q -> q.toFile().delete());
+      }
+    });
   });
 }}
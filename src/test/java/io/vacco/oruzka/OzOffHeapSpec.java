@@ -0,0 +1,81 @@
+package io.vacco.oruzka;
+
+import io.vacco.oruzka.core.OzOffHeap;
+import j8spec.junit.J8SpecRunner;
+import org.junit.runner.RunWith;
+
+import java.nio.BufferOverflowException;
+import java.util.Random;
+
+import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
+
+@RunWith(J8SpecRunner.class)
+public class OzOffHeapSpec { static {
+  describe(OzOffHeap.class.getCanonicalName(), () -> {
+    it("can store primitives off-heap", () -> {
+      try (OzOffHeap.Longs l = OzOffHeap.longs(100_000, true);
+           OzOffHeap.Ints n = OzOffHeap.ints(1_000, false);
+           OzOffHeap.Bytes b = OzOffHeap.bytes(1_000, true)) {
+        for (long i = 0; i < l.length(); i++) { l.set(i, i * 31); }
+        for (long i = 0; i < l.length(); i++) { assertEquals(i * 31, l.get(i)); }
+        assertEquals(62, l.addAndGet(1, 31));
+        n.fill(-1);
+        assertEquals(-1, n.get(999));
+        byte[] src = new byte[256], dst = new byte[256];
+        new Random(1).nextBytes(src);
+        b.set(700, src, 0, 256);
+        b.get(700, dst, 0, 256);
+        assertArrayEquals(src, dst);
+        assertEquals(src[3], b.get(703));
+      }
+      try (OzOffHeap.Arena a = new OzOffHeap.Arena(4096, true)) {
+        OzOffHeap.Longs x = a.longs(100), y = a.longs(1_000);
+        OzOffHeap.Ints z = a.ints(3);
+        x.set(99, 7);
+        y.set(999, 8);
+        z.set(2, 9);
+        assertEquals(7, x.get(99));
+        assertEquals(8, y.get(999));
+        assertEquals(9, z.get(2));
+        assertEquals(800 + 8000 + 12, a.allocated());
+        a.free();
+        assertTrue(x.isFreed() && y.isFreed() && z.isFreed());
+        OzOffHeap.Bytes w = a.bytes(10);
+        w.set(9, (byte) 1);
+        assertEquals(1, w.get(9));
+      }
+    });
+    it("rejects out of bounds indices on checked arrays",
+        c -> c.expected(IllegalStateException.class), () -> OzOffHeap.longs(10, true).get(10));
+    it("allows empty bulk copies at either end of checked byte arrays", () -> {
+      try (OzOffHeap.Bytes b = OzOffHeap.bytes(16, true)) {
+        byte[] buf = new byte[4];
+        b.set(0, buf, 0, 0);
+        b.set(16, buf, 4, 0);
+        b.get(16, buf, 0, 0);
+        b.set(12, buf, 0, 4);
+      }
+    });
+    it("rejects negative bulk copy lengths on checked byte arrays",
+        c -> c.expected(IllegalStateException.class), () -> OzOffHeap.bytes(16, true).get(4, new byte[4], 0, -1));
+    it("rejects bulk copies past the end of checked byte arrays",
+        c -> c.expected(IllegalStateException.class), () -> OzOffHeap.bytes(16, true).set(13, new byte[4], 0, 4));
+    it("fails overlong bulk copies inside the buffers of unchecked byte arrays",
+        c -> c.expected(BufferOverflowException.class), () -> OzOffHeap.bytes(10, false).set(5, new byte[10], 0, 10));
+    it("rejects array sizes that overflow their byte length",
+        c -> c.expected(IllegalStateException.class), () -> OzOffHeap.longs(1L << 61, true));
+    it("rejects arena array sizes that overflow their byte length",
+        c -> c.expected(IllegalStateException.class), () -> new OzOffHeap.Arena().ints(1L << 62));
+    it("rejects use after free on checked arrays", c -> c.expected(IllegalStateException.class), () -> {
+      OzOffHeap.Ints n = OzOffHeap.ints(10, true);
+      n.free();
+      n.get(0);
+    });
+    it("fails safely on use after free of unchecked arrays", c -> c.expected(NullPointerException.class), () -> {
+      OzOffHeap.Ints n = OzOffHeap.ints(10, false);
+      n.free();
+      n.set(0, 1);
+    });
+  });
+}}
@@ -0,0 +1,107 @@
+package io.vacco.oruzka;
+
+import io.vacco.oruzka.hash.OzXxHash;
+import io.vacco.oruzka.sketch.*;
+import j8spec.junit.J8SpecRunner;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static j8spec.J8Spec.*;
+import static org.junit.Assert.*;
+
+@RunWith(J8SpecRunner.class)
+public class OzSketchSpec {
+
+  private static long key(long i) {
+    return OzXxHash.hashChars("key-" + i, 0);
+  }
+
+  private static DataInputStream roundTrip(SketchWriter w) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    w.write(new DataOutputStream(bos));
+    return new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+  }
+
+  private interface SketchWriter { void write(DataOutput out); }
+
+  static {
+    describe("Sketches", () -> {
+      it("can filter absent keys with a blocked Bloom filter", () -> {
+        OzBloom b = OzBloom.of(100_000, 0.01);
+        IntStream.range(0, 100_000).parallel().forEach(i -> b.add(key(i)));
+        for (int i = 0; i < 100_000; i++) {
+          assertTrue(b.mightContain(key(i)));
+        }
+        long fp = IntStream.range(100_000, 200_000).filter(i -> b.mightContain(key(i))).count();
+        System.out.printf("bloom: %d blocks, k = %d, fpp = %.4f%n", b.blocks(), b.hashes(), fp / 100_000.0);
+        assertTrue(fp < 2_000);
+
+        OzBloom b1 = OzBloom.read(roundTrip(b::write));
+        assertEquals(b.bitCount(), b1.bitCount());
+        OzBloom other = OzBloom.of(100_000, 0.01);
+        other.add("meep");
+        assertTrue(b1.merge(other).mightContain("meep"));
+      });
+      it("can estimate cardinalities with HyperLogLog", () -> {
+        OzHyperLogLog h = new OzHyperLogLog(14);
+        assertEquals(0, h.cardinality());
+        for (int i = 0; i < 10; i++) { h.add(key(i)); }
+        assertEquals(10, h.cardinality());
+        IntStream.range(0, 1_000_000).parallel().forEach(i -> h.add(key(i % 500_000)));
+        long est = h.cardinality();
+        System.out.printf("hll: 500000 distinct, estimated %d%n", est);
+        assertTrue(Math.abs(est - 500_000) < 500_000 * 0.03);
+
+        OzHyperLogLog h1 = new OzHyperLogLog(14);
+        for (int i = 500_000; i < 1_000_000; i++) { h1.add(key(i)); }
+        OzHyperLogLog merged = OzHyperLogLog.read(roundTrip(h::write)).merge(h1);
+        assertTrue(Math.abs(merged.cardinality() - 1_000_000) < 1_000_000 * 0.03);
+      });
+      it("can estimate key frequencies with Count-Min", () -> {
+        OzCountMin cm = OzCountMin.of(0.0001, 0.001);
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+          for (int j = 0; j <= i % 100; j++) { cm.add(key(i)); }
+        });
+        for (int i = 0; i < 1000; i++) {
+          long est = cm.estimate(key(i));
+          assertTrue(est >= i % 100 + 1);
+          assertTrue(est <= i % 100 + 1 + 0.0001 * cm.total() * 2);
+        }
+        OzCountMin cm1 = OzCountMin.read(roundTrip(cm::write)).merge(cm);
+        assertEquals(2 * cm.estimate(key(99)), cm1.estimate(key(99)));
+        assertEquals(2 * cm.total(), cm1.total());
+      });
+      it("rejects Count-Min sketches with more than 2^31 counters",
+          c -> c.expected(IllegalStateException.class), () -> new OzCountMin(3, 1 << 30));
+      it("rejects Bloom filters with more than 2^31 words",
+          c -> c.expected(IllegalStateException.class), () -> new OzBloom(1 << 28, 4));
+      it("can find similar documents with MinHash, SimHash and LSH", () -> {
+        List<List<String>> docs = IntStream.range(0, 200).mapToObj(d -> IntStream.range(0, 100)
+            .mapToObj(w -> d % 2 == 1 && w < 90 ? "w" + (d - 1) + "-" + w : "w" + d + "-" + w)
+            .collect(Collectors.toList())).collect(Collectors.toList());
+        OzMinHash mh = new OzMinHash(128, 7);
+        long[][] sigs = docs.parallelStream().map(d -> mh.of(d.stream())).toArray(long[][]::new);
+        assertArrayEquals(sigs[3], mh.of(docs.get(3).stream()));
+        double j = OzMinHash.similarity(sigs[0], sigs[1]);
+        System.out.printf("minhash: jaccard 0.818, estimated %.3f%n", j);
+        assertTrue(Math.abs(j - 90.0 / 110) < 0.12);
+        assertTrue(OzMinHash.similarity(sigs[0], sigs[2]) < 0.05);
+
+        OzSimHash sh = new OzSimHash(7);
+        long f0 = sh.of(docs.get(0).stream()), f1 = sh.of(docs.get(1).stream()), f2 = sh.of(docs.get(2).stream());
+        assertTrue(OzSimHash.distance(f0, f1) < OzSimHash.distance(f0, f2));
+
+        OzLsh lsh = new OzLsh(32, 4);
+        for (int i = 0; i < sigs.length; i++) { lsh.add(i, sigs[i]); }
+        assertArrayEquals(new int[] {0, 1}, lsh.candidates(sigs[0]));
+        Set<Long> pairs = new HashSet<>();
+        lsh.candidatePairs((a, b) -> assertTrue(pairs.add(((long) a << 32) | b)));
+        for (int i = 0; i < sigs.length; i += 2) { assertTrue(pairs.contains(((long) i << 32) | (i + 1))); }
+        assertEquals(100, pairs.size());
+      });
+    });
+  }
+}
@@ -3,15 +3,17 @@ package io.vacco.oruzka;
 import com.esotericsoftware.yamlbeans.YamlConfig;
 import com.esotericsoftware.yamlbeans.YamlReader;
 import com.esotericsoftware.yamlbeans.YamlWriter;
-import io.vacco.oruzka.core.OFnSupplier;
+import io.vacco.oruzka.core.*;
 import io.vacco.oruzka.io.OzIo;
-import io.vacco.oruzka.util.OzPatchLeft;
+import io.vacco.oruzka.util.*;
 import j8spec.junit.J8SpecRunner;
 import org.junit.runner.RunWith;
 
-import java.io.StringWriter;
+import java.io.*;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import static j8spec.J8Spec.*;
 import static org.junit.Assert.*;
@@ -109,6 +111,240 @@ public class OzUtilSpec {
         assertTrue(f.isPresent());
         System.out.println(f.get());
       });
+      it("can map primitive keys with open addressing", () -> {
+        Random r = new Random(42);
+        OzLongLongMap ll = longLongMapOf(0, 1, -1, 2);
+        OzIntIntMap ii = intIntMapOf(0, 1, -1, 2);
+        OzLongObjectMap<String> lo = longObjectMapOf(kv(0L, "zero"));
+        Map<Long, Long> ref = new HashMap<>();
+        ref.put(0L, 1L);
+        ref.put(-1L, 2L);
+        for (int i = 0; i < 200_000; i++) {
+          long k = r.nextInt(20_000) - 10_000L, v = r.nextLong();
+          if (r.nextInt(3) == 0) {
+            assertEquals(ref.remove(k) != null, ll.remove(k));
+            assertFalse(ll.containsKey(k));
+            ii.remove((int) k);
+            lo.remove(k);
+          } else {
+            assertEquals(!ref.containsKey(k), ll.put(k, v));
+            ref.put(k, v);
+            ii.put((int) k, (int) v);
+            lo.put(k, Long.toString(v));
+          }
+        }
+        assertEquals(ref.size(), ll.size());
+        assertEquals(ref.size(), ii.size());
+        assertEquals(ref.size(), lo.size());
+        for (long k = -10_001; k <= 10_001; k++) {
+          Long v = ref.get(k);
+          assertEquals(v != null, ll.containsKey(k));
+          assertEquals(v != null, ii.containsKey((int) k));
+          assertEquals(v != null ? v : -7L, ll.get(k, -7));
+          assertEquals(v != null ? (long) v.intValue() : -7L, (long) ii.get((int) k, -7));
+          assertEquals(v != null ? v.toString() : null, lo.get(k));
+        }
+        long[] sum = new long[1];
+        ll.forEach((k, v) -> sum[0] += v);
+        assertEquals(ref.values().stream().mapToLong(Long::longValue).sum(), sum[0]);
+        int[] count = new int[1];
+        lo.forEach((k, v) -> { assertEquals(ref.get(k).toString(), v); count[0]++; });
+        assertEquals(ref.size(), count[0]);
+        assertEquals(3, ll.addTo(123_456, 3));
+        assertEquals(5, ll.addTo(123_456, 2));
+        assertEquals("meep", lo.computeIfAbsent(123_456, k -> "meep"));
+        ll.clear();
+        assertTrue(ll.isEmpty());
+        assertFalse(ll.containsKey(0));
+      });
+      it("can build compact immutable maps", () -> {
+        for (int n = 0; n <= 20; n++) {
+          Object[] kvs = new Object[n * 2];
+          Map<String, Integer> ref = new HashMap<>();
+          for (int i = 0; i < n; i++) {
+            kvs[2 * i] = "k" + i;
+            kvs[2 * i + 1] = i;
+            ref.put("k" + i, i);
+          }
+          Map<String, Integer> m = mapOf(kvs);
+          assertEquals(ref, m);
+          assertEquals(m, ref);
+          assertEquals(ref.hashCode(), m.hashCode());
+          assertEquals(n, m.size());
+          for (int i = 0; i <= n; i++) {
+            assertEquals(i < n ? Integer.valueOf(i) : null, m.get("k" + i));
+            assertEquals(i < n, m.containsKey("k" + i));
+          }
+          int[] sum = new int[1];
+          m.forEach((k, v) -> sum[0] += v);
+          assertEquals(n * (n - 1) / 2, sum[0]);
+        }
+        Map<String, Object> m = mapOf("host", "localhost", "port", 80);
+        assertEquals(80, m.get("port"));
+        assertEquals(mapOf(kv("host", "localhost"), kv("port", 80)), m);
+
+        int rounds = 200_000;
+        for (int k = 0; k < 3; k++) {
+          long t0 = System.nanoTime(), acc = 0;
+          for (int i = 0; i < rounds; i++) {
+            Map<String, Object> hm = new HashMap<>();
+            hm.put("host", "localhost"); hm.put("port", i); hm.put("user", "meep");
+            acc += hm.get("port").hashCode();
+          }
+          long t1 = System.nanoTime();
+          for (int i = 0; i < rounds; i++) {
+            acc += mapOf("host", "localhost", "port", i, "user", "meep").get("port").hashCode();
+          }
+          long t2 = System.nanoTime();
+          System.out.printf("3 entry maps: HashMap %.1f ns, mapOf %.1f ns (%d)%n",
+              (t1 - t0) / (double) rounds, (t2 - t1) / (double) rounds, acc & 1);
+        }
+      });
+      it("can merge into empty compact maps", () -> {
+        OzPatchLeft pl = new OzPatchLeft();
+        assertEquals(mapOf(kv("a", 1)), pl.onMultiple(mapOf(kv("a", 1)), mapOf()).get());
+        assertEquals(mapOf(kv("a", 1)), pl.onMultiple(mapOf(), mapOf(kv("a", 1))).get());
+        Map<String, Object> nested = mapOf(kv("server", mapOf(kv("host", "localhost"))));
+        assertEquals(nested, pl.onMultiple(mapOf(kv("server", mapOf())), nested).get());
+        assertEquals(nested, pl.onMultiple(nested, mapOf(kv("server", mapOf()))).get());
+      });
+      it("rejects mutation of compact maps",
+          c -> c.expected(UnsupportedOperationException.class), () -> mapOf("a", 1).put("b", 2));
+      it("rejects duplicate keys in compact maps",
+          c -> c.expected(IllegalStateException.class), () -> mapOf("a", 1, "b", 2, "c", 3, "d", 4, "e", 5, "a", 6));
+      it("can bound caches with W-TinyLFU eviction", () -> {
+        int items = 100_000, ops = 100_000;
+        double[] cdf = new double[items];
+        double sum = 0;
+        for (int i = 0; i < items; i++) { cdf[i] = sum += 1 / Math.pow(i + 1, 0.9); }
+        Random r = new Random(42);
+        int[] trace = new int[ops];
+        for (int i = 0; i < ops; i++) {
+          int k = Arrays.binarySearch(cdf, r.nextDouble() * sum);
+          trace[i] = k < 0 ? -k - 1 : k;
+        }
+        OFn<Integer, Integer> load = k -> { // ~5us backing store access
+          long t = System.nanoTime();
+          while (System.nanoTime() - t < 5_000) { continue; }
+          return k;
+        };
+        OzCache<Integer, Integer> c = null;
+        double lruRatio = 0;
+        for (int round = 0; round < 3; round++) { // early rounds warm up
+          c = new OzCache<>(1_000);
+          Map<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>(2_000, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Integer, Integer> e) { return size() > 1_000; }
+          };
+          long lruHits = 0, t0 = System.nanoTime();
+          for (int i = 0; i < ops; i++) { c.get(trace[i], load); }
+          long t1 = System.nanoTime();
+          for (int i = 0; i < ops; i++) {
+            if (lru.get(trace[i]) != null) { lruHits++; } else { lru.put(trace[i], load.apply(trace[i])); }
+          }
+          long t2 = System.nanoTime();
+          lruRatio = (double) lruHits / ops;
+          System.out.printf("zipf 0.9: W-TinyLFU hit ratio %.3f (%d ns/op), LRU hit ratio %.3f (%d ns/op)%n",
+              c.hitRatio(), (t1 - t0) / ops, lruRatio, (t2 - t1) / ops);
+        }
+        assertTrue(c.hitRatio() > lruRatio + 0.05);
+        assertTrue(c.size() <= 1_000);
+
+        OzCache<String, String> w = new OzCache<String, String>(100).withWeigher((k, v) -> v.length());
+        for (int i = 0; i < 1_000; i++) { w.put("k" + i, "v" + i); }
+        assertTrue(w.weight() <= 100);
+
+        AtomicLong now = new AtomicLong();
+        OzCache<String, String> e = new OzCache<String, String>(100)
+            .withTicker(now::get).expireAfterWrite(10, TimeUnit.SECONDS).expireAfterAccess(2, TimeUnit.SECONDS);
+        e.put("a", "1");
+        e.put("b", "2");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals("1", e.getIfPresent("a"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals("1", e.getIfPresent("a"));
+        assertNull(e.getIfPresent("b"));
+        for (int i = 0; i < 9; i++) {
+          now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+          assertEquals(i < 7 ? "1" : null, e.getIfPresent("a"));
+        }
+        e.cleanUp();
+        assertEquals(0, e.size());
+        e.put("a", "3");
+        e.invalidate("a");
+        assertNull(e.getIfPresent("a"));
+      });
+      it("loads cache values once under concurrent misses", () -> {
+        OzCache<String, String> c = new OzCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService ex = Executors.newFixedThreadPool(16);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+          results.add(ex.submit(() -> c.get("meep", k -> {
+            loads.incrementAndGet();
+            Thread.sleep(100);
+            return k.toUpperCase();
+          })));
+        }
+        for (Future<String> f : results) { assertEquals("MEEP", f.get()); }
+        ex.shutdown();
+        assertEquals(1, loads.get());
+      });
+      it("propagates cache loader failures",
+          c -> c.expected(IllegalStateException.class),
+          () -> new OzCache<String, String>(10).get("meep", k -> { throw new IOException("nope"); }));
+      it("rejects recursive loads of the same key", c -> c.expected(IllegalStateException.class), () -> {
+        OzCache<String, String> cache = new OzCache<>(10);
+        cache.get("meep", k -> cache.get(k, String::toUpperCase));
+      });
+      it("can count events per key with striped counters", () -> {
+        OzCounterMap<String> c = counterMapOf("a", "b");
+        int threads = 8, n = 200_000;
+        AtomicLong drained = new AtomicLong();
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<?>> fs = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+          int tt = t;
+          fs.add(ex.submit(() -> {
+            for (int i = 0; i < n; i++) {
+              c.increment(i % 2 == 0 ? "a" : "k" + (i % 100));
+              if (tt == 0 && i % 1000 == 0) {
+                drained.addAndGet(c.snapshotAndReset().values().stream().mapToLong(Long::longValue).sum());
+              }
+            }
+          }));
+        }
+        for (Future<?> f : fs) { f.get(); }
+        ex.shutdown();
+        long total = drained.get() + c.snapshotAndReset().values().stream().mapToLong(Long::longValue).sum();
+        assertEquals((long) threads * n, total);
+        assertEquals(52, c.size());
+        assertEquals(0, c.sum("a"));
+
+        for (int i = 0; i < 10; i++) { c.add("k" + i, i); }
+        List<Map.Entry<String, Long>> top = c.top(3);
+        assertEquals(3, top.size());
+        assertEquals("k9", top.get(0).getKey());
+        assertEquals(7L, (long) top.get(2).getValue());
+
+        for (int i = 0; i < 200; i++) { c.increment("g" + i); }
+        assertEquals(257, c.size());
+        assertEquals(257, c.snapshot().size());
+        assertEquals(1, c.sum("g199"));
+
+        OzCounterMap<DataProvider> e = counterMapOf(DataProvider.class);
+        assertEquals(2, e.size());
+        e.increment(DataProvider.FileSystem);
+        e.add(DataProvider.ClassPath, 3);
+        assertEquals(1, e.sum(DataProvider.FileSystem));
+        assertEquals(3, e.snapshot().get(DataProvider.ClassPath).longValue());
+
+        int ops = 10_000_000;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ops; i++) { e.increment(DataProvider.ClassPath); }
+        System.out.printf("striped enum counter increment: %.1f ns%n", (System.nanoTime() - t0) / (double) ops);
+      });
+      it("rejects odd key/value counts in primitive map factories",
+          c -> c.expected(IllegalStateException.class), () -> longLongMapOf(1, 2, 3));
     });
   }
 }